@@ -0,0 +1,259 @@
+package Concurrent;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-mostly list with CopyOnWriteArrayList's lock-free snapshot reads, but
+ * without its one-array-copy-per-write cost under concurrent writers.
+ *
+ * Readers see an immutable array published through a volatile field, exactly as
+ * in CopyOnWriteArrayList: get() and iteration never lock, and an iterator keeps
+ * working on the snapshot it started with. Writers do not copy the array
+ * themselves. They enqueue their operation, and whichever writer gets the
+ * combiner lock ("flat combining") applies every queued operation to a single
+ * new copy and publishes it once. With k writers arriving together, the list is
+ * copied once instead of k times.
+ *
+ * A write returns once it is visible to readers, so the list stays linearizable.
+ * The supported writes are add, addAll, remove(Object) and clear; positional
+ * writes throw UnsupportedOperationException. Reads that look at more than one
+ * element (iterators, indexOf, contains, subList, streams) work on a single
+ * snapshot, as they do in CopyOnWriteArrayList.
+ */
+public class BatchingSnapshotList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Object[] snapshot = EMPTY;
+    private final ConcurrentLinkedQueue<WriteOp> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock combiner = new ReentrantLock();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) snapshot[index];
+    }
+
+    @Override
+    public int size() {
+        return snapshot.length;
+    }
+
+    @Override
+    public boolean add(E e) {
+        submit(new WriteOp(WriteOp.ADD, e, null));
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] values = c.toArray();
+        if (values.length == 0) {
+            return false;
+        }
+        submit(new WriteOp(WriteOp.ADD_ALL, null, values));
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return submit(new WriteOp(WriteOp.REMOVE, o, null));
+    }
+
+    @Override
+    public void clear() {
+        submit(new WriteOp(WriteOp.CLEAR, null, null));
+    }
+
+    /**
+     * Iterates over the snapshot taken when the iterator was created; never throws
+     * ConcurrentModificationException and does not support remove().
+     */
+    @Override
+    public Iterator<E> iterator() {
+        Object[] elements = snapshot;
+        return new Iterator<E>() {
+            private int cursor;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < elements.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (cursor >= elements.length) {
+                    throw new NoSuchElementException();
+                }
+                return (E) elements[cursor++];
+            }
+        };
+    }
+
+    /**
+     * Walks the snapshot taken at the time of the call; read-only.
+     */
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return snapshot().listIterator(index);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return snapshot().contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return snapshot().indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return snapshot().lastIndexOf(o);
+    }
+
+    @Override
+    public E getFirst() {
+        return snapshot().getFirst();
+    }
+
+    @Override
+    public E getLast() {
+        return snapshot().getLast();
+    }
+
+    /**
+     * Read-only range of the current snapshot; later writes do not show up in it.
+     */
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return snapshot().subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    /**
+     * Read-only view of the current snapshot; later writes do not show up in it.
+     * Published arrays are never modified, so no copy is needed.
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> snapshot() {
+        return (List<E>) Collections.unmodifiableList(Arrays.asList(snapshot));
+    }
+
+    // Enqueues the operation, then either combines or waits for a combiner to apply it
+    private boolean submit(WriteOp op) {
+        pending.offer(op);
+        int spins = 0;
+        while (!op.done) {
+            if (combiner.tryLock()) {
+                try {
+                    combine();
+                } finally {
+                    combiner.unlock();
+                }
+            } else if (++spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return op.result;
+    }
+
+    private void combine() {
+        List<WriteOp> batch = new ArrayList<>();
+        int added = 0;
+        WriteOp op;
+        while ((op = pending.poll()) != null) {
+            batch.add(op);
+            added += op.kind == WriteOp.ADD ? 1 : op.kind == WriteOp.ADD_ALL ? op.values.length : 0;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // One copy for the whole batch, with room for every add in it
+        Object[] current = snapshot;
+        Object[] work = Arrays.copyOf(current, current.length + added);
+        int size = current.length;
+        for (WriteOp write : batch) {
+            switch (write.kind) {
+                case WriteOp.ADD:
+                    work[size++] = write.value;
+                    write.result = true;
+                    break;
+                case WriteOp.ADD_ALL:
+                    System.arraycopy(write.values, 0, work, size, write.values.length);
+                    size += write.values.length;
+                    write.result = true;
+                    break;
+                case WriteOp.REMOVE:
+                    int index = indexOf(work, size, write.value);
+                    if (index >= 0) {
+                        System.arraycopy(work, index + 1, work, index, size - index - 1);
+                        work[--size] = null;
+                    }
+                    write.result = index >= 0;
+                    break;
+                default: // CLEAR
+                    Arrays.fill(work, 0, size, null);
+                    size = 0;
+                    write.result = true;
+                    break;
+            }
+        }
+        snapshot = size == work.length ? work : Arrays.copyOf(work, size);
+        for (WriteOp write : batch) {
+            write.done = true; // volatile: the waiting writer also sees the new snapshot
+        }
+    }
+
+    private static int indexOf(Object[] elements, int size, Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class WriteOp {
+        static final int ADD = 0;
+        static final int ADD_ALL = 1;
+        static final int REMOVE = 2;
+        static final int CLEAR = 3;
+
+        final int kind;
+        final Object value;
+        final Object[] values;
+        boolean result; // written by the combiner before done
+        volatile boolean done;
+
+        WriteOp(int kind, Object value, Object[] values) {
+            this.kind = kind;
+            this.value = value;
+            this.values = values;
+        }
+    }
+}
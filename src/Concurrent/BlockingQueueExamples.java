@@ -1,8 +1,21 @@
 package Concurrent;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 public class BlockingQueueExamples {
 
@@ -64,6 +77,143 @@ public class BlockingQueueExamples {
         }
     }
 
+    /**
+     * Runs the same pipeline twice through an InstrumentedBlockingQueue: once with
+     * a consumer that falls behind, once with a producer that does. The telemetry
+     * tells the two stalls apart: a slow consumer shows up as long put blocks, long
+     * sojourn times and a full queue; a slow producer as long take waits and an
+     * almost empty queue.
+     */
+    public static void instrumentedQueueExample() {
+        System.out.println("=== InstrumentedBlockingQueue Example ===");
+        System.out.println("-- slow consumer --");
+        runInstrumented(false, true);
+        System.out.println("-- slow producer --");
+        runInstrumented(true, false);
+    }
+
+    private static void runInstrumented(boolean slowProducer, boolean slowConsumer) {
+        int items = 20_000;
+        InstrumentedBlockingQueue<Integer> queue = new InstrumentedBlockingQueue<>(new ArrayBlockingQueue<>(64), 4);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < items; i++) {
+                    if (slowProducer && i % 10 == 0) {
+                        LockSupport.parkNanos(50_000);
+                    }
+                    queue.put(i);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Producer Thread");
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < items; i++) {
+                    if (slowConsumer && i % 10 == 0) {
+                        LockSupport.parkNanos(50_000);
+                    }
+                    queue.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Consumer Thread");
+
+        producer.start();
+        consumer.start();
+        try {
+            producer.join();
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(queue.report());
+    }
+
+    /**
+     * Producers hand items to one consumer through LinkedBlockingQueue,
+     * ConcurrentLinkedQueue and ChunkedBlockingQueue. Prints throughput and the
+     * bytes allocated per item by all threads; the items are cached Integers, so
+     * whatever is allocated is the queue's own bookkeeping.
+     */
+    public static void allocationRateComparison(int producers, int itemsPerProducer) {
+        System.out.println("=== " + producers + " producers x " + itemsPerProducer + " items, 1 consumer ===");
+        for (int round = 0; round < 3; round++) { // the first round doubles as warm-up
+            LinkedBlockingQueue<Integer> linked = new LinkedBlockingQueue<>();
+            runAllocation("LinkedBlockingQueue", linked, producers, itemsPerProducer, () -> take(linked));
+            ConcurrentLinkedQueue<Integer> lockFree = new ConcurrentLinkedQueue<>();
+            runAllocation("ConcurrentLinkedQueue", lockFree, producers, itemsPerProducer, () -> spinPoll(lockFree));
+            ChunkedBlockingQueue<Integer> chunked = new ChunkedBlockingQueue<>();
+            runAllocation("ChunkedBlockingQueue", chunked, producers, itemsPerProducer, () -> take(chunked));
+        }
+    }
+
+    private interface Taker {
+        Integer take() throws InterruptedException;
+    }
+
+    private static Integer take(BlockingQueue<Integer> queue) throws InterruptedException {
+        return queue.take();
+    }
+
+    private static Integer spinPoll(Queue<Integer> queue) {
+        Integer item;
+        while ((item = queue.poll()) == null) {
+            Thread.onSpinWait();
+        }
+        return item;
+    }
+
+    private static void runAllocation(String name, Queue<Integer> queue, int producers, int itemsPerProducer,
+                                      Taker taker) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LongAdder allocatedBytes = new LongAdder();
+        long items = (long) producers * itemsPerProducer;
+        long[] checksum = new long[1];
+        Thread[] threads = new Thread[producers + 1];
+        for (int t = 0; t < producers; t++) {
+            threads[t] = new Thread(() -> {
+                long before = mx.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < itemsPerProducer; i++) {
+                    queue.offer(i & 127); // Integer cache: no boxing garbage
+                }
+                allocatedBytes.add(mx.getCurrentThreadAllocatedBytes() - before);
+            }, "Producer Thread " + t);
+        }
+        threads[producers] = new Thread(() -> {
+            long before = mx.getCurrentThreadAllocatedBytes();
+            long sum = 0;
+            try {
+                for (long i = 0; i < items; i++) {
+                    sum += taker.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            allocatedBytes.add(mx.getCurrentThreadAllocatedBytes() - before);
+            checksum[0] = sum;
+        }, "Consumer Thread");
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        long expected = producers * (long) (itemsPerProducer / 128 * 8128
+                + (itemsPerProducer % 128) * (itemsPerProducer % 128 - 1) / 2);
+        System.out.printf("%-30s %,14.0f items/s %8.1f bytes/item%s%n", name, items * 1e9 / elapsed,
+                allocatedBytes.sum() / (double) items, checksum[0] == expected ? "" : " (checksum mismatch!)");
+    }
+
     /**
      * Demonstrates usage of PriorityBlockingQueue.
      */
@@ -88,10 +238,309 @@ public class BlockingQueueExamples {
         }
     }
 
+    /**
+     * Demonstrates usage of MpmcArrayBlockingQueue, the lock-free counterpart of
+     * ArrayBlockingQueue: same put/take behaviour, but no lock unless a thread has
+     * to wait.
+     */
+    public static void lockFreeArrayBlockingQueueExample() {
+        System.out.println("=== MpmcArrayBlockingQueue Example ===");
+        MpmcArrayBlockingQueue<Integer> queue = new MpmcArrayBlockingQueue<>(4);
+
+        try {
+            for (int i = 1; i <= 4; i++) {
+                queue.put(i);
+                System.out.println("Added: " + i);
+            }
+            System.out.println("offer(5) on a full queue returns: " + queue.offer(5));
+
+            System.out.println("Attempting to add another element (blocks until space is available)");
+
+            // This parks since the queue is full
+            new Thread(() -> {
+                try {
+                    queue.put(5);
+                    System.out.println("Added: 5 after space became available.");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).start();
+
+            Thread.sleep(1000); // Simulate time for other operations
+            System.out.println("Removed: " + queue.take()); // Wakes the parked producer
+            Thread.sleep(100);
+            System.out.println("Queue content: " + queue);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Demonstrates usage of MultiQueue, a bounded relaxed-priority queue: several
+     * small heaps instead of one, and put() blocks once the capacity is reached.
+     */
+    public static void multiQueueExample() {
+        System.out.println("=== MultiQueue Example ===");
+        MultiQueue<Integer> queue = new MultiQueue<>(4, 2, null);
+
+        try {
+            queue.put(20);
+            queue.put(5);
+            queue.put(15);
+            queue.put(10);
+            System.out.println("Added: 20, 5, 15, 10 (capacity " + queue.capacity() + ")");
+            System.out.println("offer(1) on a full queue returns: " + queue.offer(1));
+
+            // Relaxed order: each take() returns one of the smallest elements, not always the smallest
+            StringBuilder order = new StringBuilder();
+            while (!queue.isEmpty()) {
+                order.append(queue.take()).append(' ');
+            }
+            System.out.println("Taken in order: " + order.toString().trim());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * ChunkedBlockingQueue's drainTo() into a collection that fails partway: the
+     * elements it did not accept stay in the queue, in order, and size() agrees.
+     */
+    public static void chunkedQueueExample() {
+        System.out.println("=== ChunkedBlockingQueue Example ===");
+        ChunkedBlockingQueue<Integer> queue = new ChunkedBlockingQueue<>();
+        for (int i = 1; i <= 5; i++) {
+            queue.put(i);
+        }
+
+        List<Integer> sink = new ArrayList<Integer>() {
+            @Override
+            public boolean add(Integer value) {
+                if (size() == 2) {
+                    throw new IllegalStateException("sink full");
+                }
+                return super.add(value);
+            }
+        };
+        try {
+            queue.drainTo(sink);
+        } catch (IllegalStateException e) {
+            System.out.println("drainTo failed after " + sink + ": " + e.getMessage());
+        }
+        System.out.println("Left in the queue: " + queue + ", size " + queue.size());
+
+        StringBuilder rest = new StringBuilder();
+        Integer value;
+        while ((value = queue.poll()) != null) {
+            rest.append(value).append(' ');
+        }
+        queue.put(6);
+        System.out.println("Polled: " + rest.toString().trim() + ", then size " + queue.size() + " and peek " + queue.peek()
+                + " after put(6)");
+    }
+
+    /**
+     * Timeout-heavy workload: several threads each schedule timeouts of 20-200 ms
+     * and cancel nine in ten right away, as completed requests do. Compares a
+     * PriorityBlockingQueue polled by one timer thread, ScheduledThreadPoolExecutor
+     * and TimingWheelScheduler.
+     */
+    public static void timeoutWorkloadComparison(int threads, int timeoutsPerThread) {
+        System.out.println("=== " + threads + " threads x " + timeoutsPerThread + " timeouts, 90% cancelled ===");
+        for (int round = 0; round < 2; round++) { // the first round doubles as warm-up
+            runTimeouts(new PriorityQueueTimer(), threads, timeoutsPerThread);
+            runTimeouts(new ExecutorTimer(), threads, timeoutsPerThread);
+            runTimeouts(new WheelTimer(), threads, timeoutsPerThread);
+        }
+    }
+
+    private static void runTimeouts(Timer timer, int threads, int timeoutsPerThread) {
+        int expectedFires = threads * (timeoutsPerThread - (timeoutsPerThread * 9 + 9) / 10);
+        CountDownLatch fired = new CountDownLatch(expectedFires);
+        Thread[] schedulers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            schedulers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < timeoutsPerThread; i++) {
+                    Object handle = timer.schedule(fired::countDown, 20 + random.nextInt(181));
+                    if (i % 10 != 9) {
+                        timer.cancel(handle);
+                    }
+                }
+            }, "Scheduler Thread " + t);
+        }
+
+        long start = System.nanoTime();
+        for (Thread scheduler : schedulers) {
+            scheduler.start();
+        }
+        try {
+            for (Thread scheduler : schedulers) {
+                scheduler.join();
+            }
+            long scheduled = System.nanoTime() - start;
+            boolean allFired = fired.await(10, TimeUnit.SECONDS);
+            long finished = System.nanoTime() - start;
+            System.out.printf("%-30s %,12.0f schedule+cancel/s, last timeout fired after %,d ms%s%n",
+                    timer.name(), (double) threads * timeoutsPerThread * 1e9 / scheduled, finished / 1_000_000,
+                    allFired ? "" : " (some never fired!)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            timer.close();
+        }
+    }
+
+    private interface Timer {
+        String name();
+
+        Object schedule(Runnable task, long delayMillis);
+
+        void cancel(Object handle);
+
+        void close();
+    }
+
+    /**
+     * One timer thread takes due entries from a PriorityBlockingQueue. Cancelled
+     * entries stay in the heap and are skipped when they come due, because
+     * remove(Object) would be a linear scan.
+     */
+    private static final class PriorityQueueTimer implements Timer {
+        private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+        private final Thread timerThread;
+        private volatile boolean closed;
+
+        private static final class Entry implements Comparable<Entry> {
+            final long deadlineNanos;
+            final Runnable task;
+            volatile boolean cancelled;
+
+            Entry(long deadlineNanos, Runnable task) {
+                this.deadlineNanos = deadlineNanos;
+                this.task = task;
+            }
+
+            @Override
+            public int compareTo(Entry other) {
+                return Long.compare(deadlineNanos, other.deadlineNanos);
+            }
+        }
+
+        PriorityQueueTimer() {
+            timerThread = new Thread(() -> {
+                while (!closed) {
+                    Entry head = queue.peek();
+                    long wait = head == null ? TimeUnit.MILLISECONDS.toNanos(1) : head.deadlineNanos - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(Math.min(wait, TimeUnit.MILLISECONDS.toNanos(1)));
+                        continue;
+                    }
+                    Entry entry = queue.poll();
+                    if (entry != null && !entry.cancelled) {
+                        entry.task.run();
+                    }
+                }
+            }, "PriorityQueue Timer");
+            timerThread.setDaemon(true);
+            timerThread.start();
+        }
+
+        @Override
+        public String name() {
+            return "PriorityBlockingQueue";
+        }
+
+        @Override
+        public Object schedule(Runnable task, long delayMillis) {
+            Entry entry = new Entry(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis), task);
+            queue.put(entry);
+            return entry;
+        }
+
+        @Override
+        public void cancel(Object handle) {
+            ((Entry) handle).cancelled = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class ExecutorTimer implements Timer {
+        private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+        ExecutorTimer() {
+            executor.setRemoveOnCancelPolicy(true); // otherwise cancelled tasks stay queued until due
+        }
+
+        @Override
+        public String name() {
+            return "ScheduledThreadPoolExecutor";
+        }
+
+        @Override
+        public Object schedule(Runnable task, long delayMillis) {
+            return executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void cancel(Object handle) {
+            ((ScheduledFuture<?>) handle).cancel(false);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class WheelTimer implements Timer {
+        private final TimingWheelScheduler wheel = new TimingWheelScheduler();
+
+        @Override
+        public String name() {
+            return "TimingWheelScheduler";
+        }
+
+        @Override
+        public Object schedule(Runnable task, long delayMillis) {
+            return wheel.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void cancel(Object handle) {
+            ((TimingWheelScheduler.Timeout) handle).cancel();
+        }
+
+        @Override
+        public void close() {
+            wheel.close();
+        }
+    }
+
+    /**
+     * Usage: BlockingQueueExamples [bench [operations]]
+     *
+     * Without arguments only the short demos run; "bench" adds the allocation and
+     * timeout-workload comparisons.
+     */
     public static void main(String[] args) {
         arrayBlockingQueueExample();
         linkedBlockingQueueExample();
         priorityBlockingQueueExample();
+        lockFreeArrayBlockingQueueExample();
+        multiQueueExample();
+        chunkedQueueExample();
+        instrumentedQueueExample();
+
+        if (args.length == 0 || !args[0].equals("bench")) {
+            return;
+        }
+        allocationRateComparison(4, 1_000_000);
+        timeoutWorkloadComparison(4, args.length > 1 ? Integer.parseInt(args[1]) : 250_000);
     }
 }
 
@@ -130,4 +579,59 @@ public class BlockingQueueExamples {
  * 
  * Q10: Can we use BlockingQueue in a producer-consumer scenario?
  * A10: Yes, BlockingQueue is specifically designed for producer-consumer scenarios as it handles synchronization and waiting internally.
+ * 
+ * Q11: Why can ArrayBlockingQueue become a bottleneck with many producers and consumers?
+ * A11: It guards both ends with a single ReentrantLock, so every put() and take() contends on the same lock,
+ *      even when the queue is neither full nor empty.
+ * 
+ * Q12: How does MpmcArrayBlockingQueue avoid that lock?
+ * A12: Every slot carries a sequence number. A producer claims a position with a CAS on the tail, writes the
+ *      element and bumps the slot's sequence; a consumer does the same on the head. Only threads that find the
+ *      queue full or empty take a lock and park, and the other side signals them only when a waiter count says so.
+ * 
+ * Q13: Why is its capacity rounded up to a power of two?
+ * A13: So a position maps to a slot with a bit mask (pos & mask) instead of a modulo.
+ * 
+ * Q14: Why is a heap-based queue (PriorityBlockingQueue, ScheduledThreadPoolExecutor) costly for timeouts?
+ * A14: Every insert is O(log n) under a single lock, and cancelling is either an O(log n) removal or a dead entry
+ *      left in the heap until it comes due. Most timeouts are cancelled, so that work is largely wasted.
+ * 
+ * Q15: How does a hierarchical timing wheel (TimingWheelScheduler) make schedule and cancel O(1)?
+ * A15: Time is cut into ticks and each timeout is appended to the bucket of the finest wheel that covers its
+ *      deadline; a cancelled timeout is unlinked from its bucket's list. One ticker thread expires a bucket per tick
+ *      and, when a fine wheel wraps around, redistributes the next bucket of the coarser wheel. Each timeout is
+ *      moved at most once per level.
+ * 
+ * Q16: What is a relaxed priority queue such as MultiQueue, and when is it acceptable?
+ * A16: It spreads elements over several locked heaps. Inserts go to any free heap, and a removal compares the
+ *      minimums of two random heaps and takes the smaller one, so threads rarely contend on a lock. The price is that
+ *      poll() returns one of the smallest elements rather than always the smallest, which is fine for dispatch
+ *      or scheduling where approximate priority is enough.
+ * 
+ * Q17: How does MultiQueue provide backpressure?
+ * A17: It is bounded: a semaphore of free slots makes put() block while the queue is full (offer() returns false),
+ *      and a semaphore of available items makes take() block while it is empty, unlike the unbounded
+ *      PriorityBlockingQueue.
+ * 
+ * Q18: Why does LinkedBlockingQueue produce garbage even when the elements themselves are preallocated?
+ * A18: Every put() allocates a Node to link the element (ConcurrentLinkedQueue does the same), and the Node
+ *      becomes garbage as soon as the element is taken. At millions of items per second that is a steady
+ *      allocation rate the GC has to keep up with.
+ * 
+ * Q19: How does ChunkedBlockingQueue avoid that?
+ * A19: It links arrays of 256 slots instead of single nodes. Producers fill the tail chunk and consumers clear
+ *      the head chunk, so a chunk is needed only every 256 items, and emptied chunks go into a small pool for the
+ *      producers to reuse. Like LinkedBlockingQueue it uses separate put and take locks and an atomic count.
+ * 
+ * Q20: A pipeline stalls. How can you tell whether producers are blocked or consumers are falling behind?
+ * A20: Measure both sides of the queue. InstrumentedBlockingQueue records how long put() blocked waiting for
+ *      space, how long take() waited for an element, how long elements sat in the queue (sojourn time) and how
+ *      deep the queue was. Long put blocks, long sojourns and a full queue point at the consumers; long take
+ *      waits and an empty queue point at the producers.
+ * 
+ * Q21: How does it keep the overhead low?
+ * A21: Only operations that actually wait read the clock: they try the non-blocking offer()/poll() first.
+ *      Sojourn time and depth are sampled: insertions and removals take tickets from two counters, and only
+ *      one ticket in N is timed, by pairing the n-th insertion with the n-th removal. The histograms are
+ *      lock-free (one atomic increment per value), and with sampling off every call is a plain delegation.
  */
@@ -0,0 +1,489 @@
+package Concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size- or weight-bounded cache on top of ConcurrentHashMap with W-TinyLFU
+ * eviction, a simplified version of the design used by Caffeine.
+ *
+ * Storage is a plain ConcurrentHashMap, so get() is a lock-free map lookup. The
+ * eviction policy is not thread-safe and lives behind one lock; instead of taking
+ * that lock, operations record events in buffers that whoever wins tryLock()
+ * replays in batches:
+ *   - reads go into small striped ring buffers; a full buffer simply drops the
+ *     event, which only makes the access statistics slightly less precise;
+ *   - writes (add, update, remove) go into an unbounded queue and are never lost,
+ *     because they change the weight the cache has to stay under.
+ *
+ * The policy splits the capacity into a small LRU "window" (1%) and a main
+ * segmented LRU (probation and protected). New entries enter the window; when
+ * the window overflows, its oldest entry has to beat the oldest probation entry
+ * on estimated access frequency (FrequencySketch) to be admitted, otherwise it
+ * is evicted. This keeps one-hit wonders from flushing out popular entries.
+ *
+ * The cache may briefly exceed its bound between a write and the next drain.
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * Weight of an entry; the cache keeps the sum of weights under its maximum.
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    private static final int READ_BUFFER_SIZE = 16; // per stripe, power of two
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int WRITE_BUFFER_DRAIN_THRESHOLD = 64;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Weigher<? super K, ? super V> weigher;
+
+    // Striped lossy read buffers: each stripe is a small ring with its own counters
+    private final AtomicReferenceArray<Node<K, V>> readBuffers;
+    private final AtomicLongArray readWriteCounts; // write count of stripe i at index i * 16
+    private final long[] readDrainCounts;          // guarded by evictionLock
+    private final int stripeMask;
+
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // Everything below is guarded by evictionLock
+    private final FrequencySketch sketch;
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> protectedDeque = new AccessOrderDeque<>();
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long protectedWeight;
+    private volatile long weightedSize;
+
+    /**
+     * Cache holding at most maximumSize entries.
+     */
+    public BoundedCache(long maximumSize) {
+        this(maximumSize, (k, v) -> 1);
+    }
+
+    /**
+     * Cache whose entries' weights add up to at most maximumWeight.
+     */
+    public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+        }
+        this.weigher = Objects.requireNonNull(weigher);
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1L, maximumWeight / 100);
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximumWeight);
+
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        this.stripeMask = stripes - 1;
+        this.readBuffers = new AtomicReferenceArray<>(stripes * READ_BUFFER_SIZE);
+        this.readWriteCounts = new AtomicLongArray(stripes * 16); // 16 longs apart: one cache line per stripe
+        this.readDrainCounts = new long[stripes];
+    }
+
+    /**
+     * Lock-free: a map lookup plus, on a hit, an entry in a read buffer.
+     */
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        recordRead(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the cached value, or computes, caches and returns it. The function
+     * runs at most once per key at a time (ConcurrentHashMap.computeIfAbsent).
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        Node<K, V>[] added = newNodeHolder();
+        Node<K, V> node = data.computeIfAbsent(key, k -> {
+            V loaded = loader.apply(k);
+            return loaded == null ? null : (added[0] = newNode(k, loaded));
+        });
+        if (node == null) {
+            return null;
+        }
+        if (added[0] == node) {
+            afterWrite(new AddTask(node));
+        } else {
+            recordRead(node);
+        }
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<K, V> node = newNode(key, value);
+        Node<K, V> previous = data.put(key, node);
+        if (previous != null) {
+            writeBuffer.offer(new RemovalTask(previous));
+        }
+        afterWrite(new AddTask(node));
+    }
+
+    public V remove(K key) {
+        Node<K, V> node = data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        afterWrite(new RemovalTask(node));
+        return node.value;
+    }
+
+    /**
+     * Number of entries in the map; may briefly exceed the bound until the next
+     * drain.
+     */
+    public long estimatedSize() {
+        return data.size();
+    }
+
+    /**
+     * Sum of the weights of the entries the policy knows about.
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Replays all pending events and evicts down to the bound.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private Node<K, V> newNode(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight for key " + key);
+        }
+        return new Node<>(key, value, weight);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V>[] newNodeHolder() {
+        return (Node<K, V>[]) new Node<?, ?>[1];
+    }
+
+    private void recordRead(Node<K, V> node) {
+        int stripe = (int) Thread.currentThread().threadId() & stripeMask;
+        int countIndex = stripe * 16;
+        long writes = readWriteCounts.get(countIndex);
+        // The drain count is read without the lock; a stale value only makes this
+        // stripe look fuller than it is
+        long drained = readDrainCounts[stripe];
+        if (writes - drained >= READ_BUFFER_SIZE) {
+            tryDrain(); // full: drop the event, but help empty the buffers
+            return;
+        }
+        if (readWriteCounts.compareAndSet(countIndex, writes, writes + 1)) {
+            readBuffers.lazySet(stripe * READ_BUFFER_SIZE + (int) (writes & READ_BUFFER_MASK), node);
+            if (((writes + 1) & READ_BUFFER_MASK) == 0) {
+                tryDrain(); // a full lap since the last drain
+            }
+        }
+        // A lost CAS means another reader used the slot; dropping this event is fine
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        if (weightedSize > maximumWeight || writeBuffer.size() >= WRITE_BUFFER_DRAIN_THRESHOLD) {
+            // Over the bound or falling behind: wait for the lock rather than let the cache grow
+            cleanUp();
+            return;
+        }
+        tryDrain();
+    }
+
+    // Whoever holds the lock drains; re-check after unlocking so a task queued
+    // while the previous holder was finishing is not stranded
+    private void tryDrain() {
+        do {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    private void maintenance() {
+        drainReadBuffers();
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        evictEntries();
+    }
+
+    private void drainReadBuffers() {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            long writes = readWriteCounts.get(stripe * 16);
+            long drained = readDrainCounts[stripe];
+            for (; drained < writes; drained++) {
+                int index = stripe * READ_BUFFER_SIZE + (int) (drained & READ_BUFFER_MASK);
+                Node<K, V> node = readBuffers.getAndSet(index, null);
+                if (node == null) {
+                    break; // claimed but not yet written; pick it up next time
+                }
+                onAccess(node);
+            }
+            readDrainCounts[stripe] = drained;
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        if (!node.linked) {
+            return; // not added yet, or already removed
+        }
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                // Accessed again while on probation: promote
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedDeque.addLast(node);
+                protectedWeight += node.weight;
+                demoteFromProtected();
+                break;
+            default:
+                protectedDeque.moveToBack(node);
+                break;
+        }
+    }
+
+    private void demoteFromProtected() {
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> demoted = protectedDeque.pollFirst();
+            if (demoted == null) {
+                return;
+            }
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void evictEntries() {
+        // Window overflow moves its oldest entries to the end of probation as candidates
+        Node<K, V> firstCandidate = null;
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.pollFirst();
+            if (node == null) {
+                break;
+            }
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (firstCandidate == null) {
+                firstCandidate = node;
+            }
+        }
+
+        // Candidates duel the oldest probation entries until the cache fits
+        Node<K, V> candidate = firstCandidate;
+        while (weightedSize > maximumWeight) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                return;
+            }
+            if (candidate == null || !candidate.linked || candidate.queue != PROBATION) {
+                evict(victim);
+                continue;
+            }
+            Node<K, V> next = probation.next(candidate);
+            if (candidate == victim) {
+                // No older entry left to duel with
+                evict(candidate);
+                candidate = next;
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        unlink(node);
+        node.alive = false;
+        data.remove(node.key, node); // only if it was not replaced meanwhile
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (!node.linked) {
+            return;
+        }
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedDeque.remove(node);
+                protectedWeight -= node.weight;
+                break;
+        }
+        weightedSize -= node.weight;
+    }
+
+    private final class AddTask implements Runnable {
+        private final Node<K, V> node;
+
+        AddTask(Node<K, V> node) {
+            this.node = node;
+        }
+
+        @Override
+        public void run() {
+            sketch.increment(node.key);
+            if (!node.alive) {
+                return; // removed before its add was replayed
+            }
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeight += node.weight;
+            weightedSize += node.weight;
+        }
+    }
+
+    private final class RemovalTask implements Runnable {
+        private final Node<K, V> node;
+
+        RemovalTask(Node<K, V> node) {
+            this.node = node;
+        }
+
+        @Override
+        public void run() {
+            unlink(node);
+            node.alive = false;
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final int weight;
+        // Guarded by evictionLock
+        int queue;
+        boolean alive = true;
+        boolean linked;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = Objects.requireNonNull(key);
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly-linked list in access order, oldest first.
+     */
+    private static final class AccessOrderDeque<K, V> {
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        void addLast(Node<K, V> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            node.linked = true;
+        }
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        Node<K, V> next(Node<K, V> node) {
+            return node.next;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.linked = false;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package Concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unbounded BlockingQueue that links fixed-size array chunks instead of one node
+ * per element, and recycles the chunks it has emptied.
+ *
+ * LinkedBlockingQueue allocates a Node for every put(), and ConcurrentLinkedQueue
+ * does the same for every offer(), so a busy queue is a steady source of garbage.
+ * Here producers fill the slots of the tail chunk and consumers clear the slots
+ * of the head chunk; a new chunk is only needed every CHUNK_SIZE elements, and
+ * emptied chunks are kept in a small pool for the producers to reuse, so in
+ * steady state the queue itself allocates nothing.
+ *
+ * Locking follows LinkedBlockingQueue: one lock for producers, one for consumers,
+ * and an atomic count that publishes elements from one side to the other. put()
+ * never blocks. Null elements are not allowed. remove(Object) takes both locks
+ * and shifts the elements in front of the removed one, O(size) like in
+ * LinkedBlockingQueue's array cousins. Iteration is a weakly consistent snapshot
+ * whose remove() goes through remove(Object).
+ */
+public class ChunkedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final int POOL_SIZE = 4;
+
+    private static final class Chunk {
+        final Object[] items = new Object[CHUNK_SIZE];
+        volatile Chunk next;
+    }
+
+    private final AtomicInteger count = new AtomicInteger();
+    // Emptied chunks waiting for reuse; slots are claimed with getAndSet, so no ABA problem
+    private final AtomicReferenceArray<Chunk> pool = new AtomicReferenceArray<>(POOL_SIZE);
+
+    private final ReentrantLock putLock = new ReentrantLock();
+    private Chunk tail;     // guarded by putLock
+    private int tailIndex;  // next free slot in tail
+
+    private final ReentrantLock takeLock = new ReentrantLock();
+    private final Condition notEmpty = takeLock.newCondition();
+    private Chunk head;     // guarded by takeLock
+    private int headIndex;  // next slot to take from head
+
+    public ChunkedBlockingQueue() {
+        head = tail = new Chunk();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        int c;
+        putLock.lock();
+        try {
+            if (tailIndex == CHUNK_SIZE) {
+                Chunk chunk = obtainChunk();
+                tail.next = chunk;
+                tail = chunk;
+                tailIndex = 0;
+            }
+            tail.items[tailIndex++] = e;
+            c = count.getAndIncrement(); // publishes the element to consumers
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0) {
+            signalNotEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * Never blocks: the queue is unbounded.
+     */
+    @Override
+    public void put(E e) {
+        offer(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    @Override
+    public E poll() {
+        if (count.get() == 0) {
+            return null;
+        }
+        takeLock.lock();
+        try {
+            return count.get() > 0 ? dequeueAndSignal() : null;
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0) {
+                notEmpty.await();
+            }
+            return dequeueAndSignal();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeueAndSignal();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        if (count.get() == 0) {
+            return null;
+        }
+        takeLock.lock();
+        try {
+            if (count.get() == 0) {
+                return null;
+            }
+            return (E) (headIndex == CHUNK_SIZE ? head.next.items[0] : head.items[headIndex]);
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Takes the consumer lock once for the whole batch. As in LinkedBlockingQueue,
+     * an element leaves the queue only once c.add() accepted it, so if c.add()
+     * throws, that element and the ones behind it stay queued and the count stays
+     * right.
+     */
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        takeLock.lock();
+        int i = 0;
+        try {
+            int n = Math.min(maxElements, count.get());
+            while (i < n) {
+                c.add(first());
+                dequeue();
+                i++;
+            }
+            return n;
+        } finally {
+            if (i > 0) {
+                count.addAndGet(-i);
+            }
+            takeLock.unlock();
+        }
+    }
+
+    /**
+     * Slow path: holds both locks, finds the first equal element and moves every
+     * element in front of it one slot towards the tail, so the hole ends up at the
+     * head, where consumers already know how to skip past it.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        putLock.lock();
+        takeLock.lock();
+        try {
+            int n = count.get();
+            if (n > 0 && headIndex == CHUNK_SIZE) {
+                advanceHead();
+            }
+            Chunk chunk = head;
+            int index = headIndex;
+            int found = -1;
+            for (int i = 0; i < n; i++) {
+                if (index == CHUNK_SIZE) {
+                    chunk = chunk.next;
+                    index = 0;
+                }
+                if (o.equals(chunk.items[index++])) {
+                    found = i;
+                    break;
+                }
+            }
+            if (found < 0) {
+                return false;
+            }
+            // Shift positions 0..found-1 up by one, carrying each element forward
+            chunk = head;
+            index = headIndex;
+            Object carry = null;
+            for (int i = 0; i <= found; i++) {
+                if (index == CHUNK_SIZE) {
+                    chunk = chunk.next;
+                    index = 0;
+                }
+                Object current = chunk.items[index];
+                chunk.items[index++] = carry;
+                carry = current;
+            }
+            headIndex++; // past the emptied slot; dequeue() moves to the next chunk when needed
+            count.getAndDecrement();
+            return true;
+        } finally {
+            takeLock.unlock();
+            putLock.unlock();
+        }
+    }
+
+    /**
+     * Weakly consistent snapshot; remove() removes an element equal to the one
+     * last returned.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        putLock.lock();
+        takeLock.lock();
+        try {
+            Chunk chunk = head;
+            int index = headIndex;
+            for (int i = count.get(); i > 0; i--) {
+                if (index == CHUNK_SIZE) {
+                    chunk = chunk.next;
+                    index = 0;
+                }
+                snapshot.add((E) chunk.items[index++]);
+            }
+        } finally {
+            takeLock.unlock();
+            putLock.unlock();
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                ChunkedBlockingQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    // takeLock held and count > 0
+    private E dequeueAndSignal() {
+        E e = dequeue();
+        if (count.getAndDecrement() > 1) {
+            notEmpty.signal(); // more left: wake the next taker, as LinkedBlockingQueue does
+        }
+        return e;
+    }
+
+    // takeLock held and an element is known to exist; does not touch count
+    private E dequeue() {
+        E e = first();
+        head.items[headIndex++] = null;
+        return e;
+    }
+
+    // takeLock held and an element is known to exist: the element dequeue() takes next
+    @SuppressWarnings("unchecked")
+    private E first() {
+        if (headIndex == CHUNK_SIZE) {
+            advanceHead();
+        }
+        return (E) head.items[headIndex];
+    }
+
+    // takeLock held, head used up and an element known to exist in the next chunk:
+    // the producer has already moved on, so the old head can be recycled
+    private void advanceHead() {
+        Chunk emptied = head;
+        head = emptied.next;
+        headIndex = 0;
+        recycle(emptied);
+    }
+
+    private void recycle(Chunk chunk) {
+        chunk.next = null;
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (pool.get(i) == null && pool.compareAndSet(i, null, chunk)) {
+                return;
+            }
+        }
+        // Pool full: let the garbage collector have it
+    }
+
+    private Chunk obtainChunk() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (pool.get(i) != null) {
+                Chunk chunk = pool.getAndSet(i, null);
+                if (chunk != null) {
+                    return chunk;
+                }
+            }
+        }
+        return new Chunk();
+    }
+
+    private void signalNotEmpty() {
+        takeLock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package Concurrent;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent per-key counter for write-heavy workloads such as request or event
+ * counts.
+ *
+ * ConcurrentHashMap.merge(key, 1L, Long::sum) locks the key's bin and replaces the
+ * boxed value on every increment, so all writers of a hot key queue up on that one
+ * bin. Here each key maps to a LongAdder: once the key exists, an increment is a
+ * lock-free map lookup plus an add to one of the adder's striped cells, and
+ * writers of the same key spread over different cells instead of fighting over
+ * one.
+ *
+ * Reads (count, topK) sum the cells, so they cost more than a write and are
+ * weakly consistent under concurrent increments. decay() halves every count so
+ * old traffic fades out; keys that reach zero are dropped.
+ */
+public class ConcurrentFrequencyCounter<K> {
+
+    private final ConcurrentHashMap<K, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public void increment(K key) {
+        add(key, 1L);
+    }
+
+    public void add(K key, long delta) {
+        LongAdder adder = counts.get(key); // no bin lock once the key exists
+        if (adder == null) {
+            adder = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    public long count(K key) {
+        LongAdder adder = counts.get(key);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * The k keys with the highest counts, highest first. Uses a bounded min-heap, so
+     * it costs O(n log k) for n keys rather than sorting everything.
+     */
+    public List<Map.Entry<K, Long>> topK(int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Map.Entry<K, Long>> heap =
+                new PriorityQueue<>(k + 1, Comparator.comparingLong(Map.Entry::getValue));
+        counts.forEach((key, adder) -> {
+            long count = adder.sum();
+            if (heap.size() < k) {
+                heap.offer(new AbstractMap.SimpleImmutableEntry<>(key, count));
+            } else if (count > heap.peek().getValue()) {
+                heap.poll();
+                heap.offer(new AbstractMap.SimpleImmutableEntry<>(key, count));
+            }
+        });
+        List<Map.Entry<K, Long>> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingLong((Map.Entry<K, Long> e) -> e.getValue()).reversed());
+        return result;
+    }
+
+    /**
+     * Halves every count. The decrement is subtracted rather than the adder being
+     * reset, so increments racing with the decay are never lost. A key is removed
+     * once its count reaches zero; an increment that lands on it at that moment can
+     * be dropped, which a decaying counter tolerates.
+     */
+    public void decay() {
+        for (K key : counts.keySet()) {
+            counts.computeIfPresent(key, (k, adder) -> {
+                long count = adder.sum();
+                adder.add(-(count - (count >> 1)));
+                return count >> 1 == 0 ? null : adder;
+            });
+        }
+    }
+
+    /**
+     * Runs decay() every period on the given scheduler until the returned future
+     * is cancelled.
+     */
+    public ScheduledFuture<?> scheduleDecay(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(this::decay, period, period, unit);
+    }
+
+    public void clear() {
+        counts.clear();
+    }
+}
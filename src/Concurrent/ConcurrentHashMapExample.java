@@ -1,6 +1,15 @@
 package Concurrent;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 class ConcurrentHashMapExample {
 
@@ -16,6 +25,12 @@ class ConcurrentHashMapExample {
         System.out.println(Thread.currentThread().getName() + " - Reading key: " + key + ", value: " + value);
     }
 
+    /**
+     * Usage: ConcurrentHashMapExample [bench [operations]]
+     *
+     * Without arguments only the short demos run; "bench" adds the comparisons,
+     * which take tens of seconds.
+     */
     public static void main(String[] args) {
         ConcurrentHashMapExample example = new ConcurrentHashMapExample();
 
@@ -36,6 +51,266 @@ class ConcurrentHashMapExample {
 
         writerThread.start();
         readerThread.start();
+
+        try {
+            writerThread.join();
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        bulkAnalyticsExample();
+
+        if (args.length == 0 || !args[0].equals("bench")) {
+            return;
+        }
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        compareWithPrimitiveMap(4, operations, 100_000);
+        frequencyCounterExample(4, operations);
+        boundedCacheExample(4, operations, 10_000);
+
+        try {
+            offHeapExample(operations);
+        } catch (IOException e) {
+            System.out.println("Off-heap example failed: " + e);
+        }
+
+        bulkAnalyticsComparison(1_000, 10_000, 100_000, 1_000_000);
+    }
+
+    /**
+     * Aggregates over the kind of map putData fills, with ConcurrentMapAnalytics.
+     */
+    public static void bulkAnalyticsExample() {
+        System.out.println("=== ConcurrentMapAnalytics Example ===");
+        ConcurrentHashMap<String, Integer> requests = new ConcurrentHashMap<>();
+        requests.put("eu/login", 120);
+        requests.put("eu/search", 340);
+        requests.put("us/login", 410);
+        requests.put("us/search", 95);
+        requests.put("asia/login", 60);
+
+        ConcurrentMapAnalytics<Integer> analytics = new ConcurrentMapAnalytics<>(requests, 1);
+        System.out.println("Total: " + analytics.sum());
+        System.out.println("Busiest: " + analytics.max());
+        System.out.println("Top 2: " + analytics.topN(2));
+        System.out.println("Per region: " + analytics.sumByPrefix('/'));
+        System.out.println("Any endpoint with at least 300: " + analytics.anyKeyAtLeast(300));
+    }
+
+    /**
+     * Times sum, top-10 and group-by-prefix on maps of the given sizes with three
+     * parallelism thresholds: sequential, parallel from 10,000 entries, and always
+     * parallel. Shows from which size splitting into fork/join tasks pays off on
+     * this machine; the answer scales with the common pool's parallelism.
+     */
+    public static void bulkAnalyticsComparison(int... sizes) {
+        System.out.println("=== Bulk analytics, common pool parallelism " + ForkJoinPool.getCommonPoolParallelism()
+                + ", microseconds per call ===");
+        System.out.printf("%10s %-14s %12s %12s %12s%n", "entries", "operation", "sequential", "from 10,000", "always");
+        long[] thresholds = {ConcurrentMapAnalytics.SEQUENTIAL, 10_000, ConcurrentMapAnalytics.MAX_PARALLELISM};
+        for (int round = 0; round < 2; round++) { // the first round doubles as warm-up
+            for (int size : sizes) {
+                ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>(size * 2);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < size; i++) {
+                    map.put("region" + (i % 32) + "/key" + i, (long) random.nextInt(1_000_000));
+                }
+                int reps = Math.max(5, 2_000_000 / size);
+                for (String operation : new String[]{"sum", "top-10", "sum-by-prefix"}) {
+                    double[] micros = new double[thresholds.length];
+                    Object[] results = new Object[thresholds.length];
+                    for (int t = 0; t < thresholds.length; t++) {
+                        ConcurrentMapAnalytics<Long> analytics = new ConcurrentMapAnalytics<>(map, thresholds[t]);
+                        results[t] = runAnalytics(analytics, operation); // the result to compare
+                        long start = System.nanoTime();
+                        for (int r = 0; r < reps; r++) {
+                            runAnalytics(analytics, operation);
+                        }
+                        micros[t] = (System.nanoTime() - start) / 1_000.0 / reps;
+                    }
+                    boolean agree = results[0].equals(results[1]) && results[0].equals(results[2]);
+                    System.out.printf("%,10d %-14s %12.1f %12.1f %12.1f%s%n", size, operation,
+                            micros[0], micros[1], micros[2], agree ? "" : "  (results differ!)");
+                }
+            }
+        }
+    }
+
+    private static Object runAnalytics(ConcurrentMapAnalytics<Long> analytics, String operation) {
+        switch (operation) {
+            case "sum":
+                return analytics.sum();
+            case "top-10":
+                List<Map.Entry<String, Long>> top = analytics.topN(10);
+                return top.stream().map(Map.Entry::getValue).toList(); // ties may pick different keys
+            default:
+                return analytics.sumByPrefix('/');
+        }
+    }
+
+    /**
+     * The putData/readData calls above against an OffHeapMap backed by a
+     * memory-mapped file: writes the entries, closes the map, and reopens the file
+     * to read them back without reloading anything.
+     */
+    public static void offHeapExample(int entries) throws IOException {
+        System.out.println("=== OffHeapMap with " + entries + " entries ===");
+        Path file = Files.createTempFile("offheap", ".map");
+        try {
+            int segments = 16;
+            int perSegment = entries / segments * 2; // room for an uneven spread over segments
+            int bytesPerSegment = perSegment * 64;
+
+            long start = System.nanoTime();
+            try (OffHeapMap map = new OffHeapMap(file, segments, perSegment, bytesPerSegment)) {
+                Thread[] writers = new Thread[4];
+                for (int t = 0; t < writers.length; t++) {
+                    int first = t;
+                    writers[t] = new Thread(() -> {
+                        for (int i = first; i < entries; i += writers.length) {
+                            map.putData("Key" + i, i);
+                        }
+                    }, "Writer Thread " + t);
+                    writers[t].start();
+                }
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+                System.out.printf("Wrote %,d entries in %d ms, heap used: %,d KB%n", map.size(),
+                        (System.nanoTime() - start) / 1_000_000, usedHeapKb());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            start = System.nanoTime();
+            try (OffHeapMap reopened = new OffHeapMap(file, segments, perSegment, bytesPerSegment)) {
+                System.out.printf("Reopened in %d us with %,d entries; Key1 -> %d, Key%d -> %d%n",
+                        (System.nanoTime() - start) / 1_000, reopened.size(), reopened.readData("Key1"),
+                        entries - 1, reopened.readData("Key" + (entries - 1)));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long usedHeapKb() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    }
+
+    /**
+     * Caches lookups of skewed keys (a few are hot, most are rare) in an unbounded
+     * ConcurrentHashMap, as putData/readData would, and in a BoundedCache. Prints
+     * how large each grew and the cache's hit rate.
+     */
+    public static void boundedCacheExample(int threads, int opsPerThread, int maximumSize) {
+        System.out.println("=== " + threads + " threads x " + opsPerThread + " skewed lookups, cache bound " + maximumSize + " ===");
+        ConcurrentHashMap<Integer, String> unbounded = new ConcurrentHashMap<>();
+        BoundedCache<Integer, String> cache = new BoundedCache<>(maximumSize);
+        LongAdder misses = new LongAdder();
+
+        runCounters("unbounded ConcurrentHashMap", threads, opsPerThread,
+                () -> unbounded.computeIfAbsent(skewedInt(), key -> "Value" + key));
+        runCounters("BoundedCache (W-TinyLFU)", threads, opsPerThread,
+                () -> cache.get(skewedInt(), key -> {
+                    misses.increment();
+                    return "Value" + key;
+                }));
+        cache.cleanUp();
+
+        long lookups = (long) threads * opsPerThread;
+        System.out.printf("unbounded map entries: %,d; cache entries: %,d; cache hit rate: %.1f%%%n",
+                unbounded.size(), cache.estimatedSize(), 100.0 * (lookups - misses.sum()) / lookups);
+    }
+
+    // Cubing a uniform value crowds it towards 0: low keys are hot, the long tail is rare
+    private static int skewedInt() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (r * r * r * 1_000_000);
+    }
+
+    /**
+     * Counts skewed traffic (nine in ten increments hit "Key1") with
+     * ConcurrentHashMap.merge and with ConcurrentFrequencyCounter, then shows the
+     * counter's heavy hitters before and after a decay.
+     */
+    public static void frequencyCounterExample(int threads, int opsPerThread) {
+        System.out.println("=== " + threads + " threads x " + opsPerThread + " increments, 90% on one hot key ===");
+        String[] keys = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "Key" + (i + 1);
+        }
+        ConcurrentFrequencyCounter<String> counter = null;
+        for (int round = 0; round < 3; round++) { // the first round doubles as warm-up
+            ConcurrentHashMap<String, Long> merged = new ConcurrentHashMap<>();
+            runCounters("ConcurrentHashMap.merge", threads, opsPerThread,
+                    () -> merged.merge(skewedKey(keys), 1L, Long::sum));
+            ConcurrentFrequencyCounter<String> striped = new ConcurrentFrequencyCounter<>();
+            runCounters("ConcurrentFrequencyCounter", threads, opsPerThread,
+                    () -> striped.increment(skewedKey(keys)));
+            counter = striped;
+        }
+
+        System.out.println("Top 3: " + counter.topK(3));
+        counter.decay();
+        System.out.println("Top 3 after decay: " + counter.topK(3) + ", keys left: " + counter.size());
+    }
+
+    private static String skewedKey(String[] keys) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextInt(10) != 0 ? keys[0] : keys[random.nextInt(keys.length)];
+    }
+
+    /**
+     * A counters workload (increment a random key) on ConcurrentHashMap<Long, Long>
+     * and on ConcurrentLongLongMap. Prints throughput and the bytes each increment
+     * allocated, measured per worker thread.
+     */
+    public static void compareWithPrimitiveMap(int threads, int opsPerThread, int keys) {
+        System.out.println("=== " + threads + " threads x " + opsPerThread + " increments over " + keys + " keys ===");
+        for (int round = 0; round < 3; round++) { // the first round doubles as warm-up
+            ConcurrentHashMap<Long, Long> boxed = new ConcurrentHashMap<>();
+            runCounters("ConcurrentHashMap<Long, Long>", threads, opsPerThread,
+                    () -> boxed.merge(ThreadLocalRandom.current().nextLong(keys), 1L, Long::sum));
+            ConcurrentLongLongMap primitive = new ConcurrentLongLongMap();
+            runCounters("ConcurrentLongLongMap", threads, opsPerThread,
+                    () -> primitive.addAndGet(ThreadLocalRandom.current().nextLong(keys), 1L));
+        }
+    }
+
+    private static void runCounters(String name, int threads, int opsPerThread, Runnable increment) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LongAdder allocatedBytes = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                long before = mx.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < opsPerThread; i++) {
+                    increment.run();
+                }
+                allocatedBytes.add(mx.getCurrentThreadAllocatedBytes() - before);
+            }, "Counter Thread " + t);
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        long ops = (long) threads * opsPerThread;
+        System.out.printf("%-30s %,14.0f ops/s %8.1f bytes/op%n", name, ops * 1e9 / elapsed,
+                allocatedBytes.sum() / (double) ops);
     }
 }
 
@@ -92,4 +367,55 @@ class ConcurrentHashMapExample {
  *    - Caching frequently accessed data in multi-threaded applications.
  *    - Storing configurations or settings that need to be accessed concurrently.
  *    - Maintaining real-time counts, such as tracking metrics or logs.
+ * 
+ * Q14: What does a ConcurrentHashMap<Long, Long> of counters cost beyond the data itself?
+ * A14: Every key and value outside the small Long cache is a boxed object, every entry is a Node, and merge()
+ *      allocates a new Long per increment. Under millions of updates per second that garbage keeps the GC busy.
+ * 
+ * Q15: How does ConcurrentLongLongMap avoid that?
+ * A15: Keys and values are stored side by side in a primitive long[] (open addressing with linear probing), so an
+ *      update writes in place and allocates nothing. The table is split into segments, each guarded by a
+ *      StampedLock: writers lock one segment, readers use an optimistic read and only lock if it was disturbed.
+ * 
+ * Q16: Why do increments of one hot key scale poorly with ConcurrentHashMap.merge()?
+ * A16: merge() locks the key's bin and writes a new boxed value, so every writer of that key is serialized on the
+ *      same bin. ConcurrentFrequencyCounter maps each key to a LongAdder instead: after the first increment a
+ *      writer only does a lock-free get() and adds to one of the adder's striped cells.
+ * 
+ * Q17: How does ConcurrentFrequencyCounter find heavy hitters and forget old traffic?
+ * A17: topK(k) keeps a min-heap of size k while scanning the keys, costing O(n log k). decay() halves every count
+ *      by subtracting half of its current sum, so concurrent increments are not lost, and drops keys that reach 0.
+ * 
+ * Q18: Why is an unbounded ConcurrentHashMap a poor cache, and how does BoundedCache bound it?
+ * A18: It only grows, so the heap and GC pauses grow with it. BoundedCache stores entries in a ConcurrentHashMap but
+ *      keeps their total size or weight under a maximum with W-TinyLFU: new entries enter a small LRU window, and
+ *      to stay they must have a higher estimated access frequency (a count-min sketch) than the entry they displace.
+ * 
+ * Q19: How does BoundedCache keep get() lock-free when the eviction policy needs a lock?
+ * A19: Reads are recorded in small striped ring buffers, and when a buffer is full the event is simply dropped.
+ *      Writes go into a queue that is never lossy. Whoever wins tryLock() replays both in batches, so readers never
+ *      wait for the policy.
+ * 
+ * Q20: Why keep a large map off the Java heap, and what does OffHeapMap give up for it?
+ * A20: The garbage collector has to trace every object on the heap, so millions of entries make marking slow.
+ *      OffHeapMap serializes keys and values into direct or memory-mapped ByteBuffers, split into segments with
+ *      their own read/write lock, so the heap holds only a few objects. In exchange every read copies the value
+ *      out and keys and values must be turned into bytes.
+ * 
+ * Q21: Why does a memory-mapped OffHeapMap restart almost instantly?
+ * A21: The index is part of the file, so reopening only maps it again; pages are loaded by the OS when first
+ *      touched instead of rebuilding the map entry by entry.
+ * 
+ * Q22: What are ConcurrentHashMap's bulk operations and what is the parallelismThreshold?
+ * A22: forEach, reduce (and the reduceToLong/Int/Double variants) and search run over the whole map without
+ *      locking it. The first argument is a threshold: if the map has fewer entries than that, the operation runs
+ *      sequentially in the calling thread; otherwise it is split into fork/join tasks on the common pool.
+ *      Long.MAX_VALUE means always sequential, 1 means as parallel as possible. Results are weakly consistent
+ *      with concurrent updates.
+ * 
+ * Q23: When does the parallel version pay off?
+ * A23: Only when there is enough work per call to outweigh forking, joining and merging partial results: many
+ *      entries, or an expensive function per entry, and free cores in the common pool. For small maps, or
+ *      when the pool is busy, sequential is faster, so the threshold should be measured on the target machine
+ *      (bulkAnalyticsComparison) instead of always passing 1.
  */
@@ -1,6 +1,10 @@
 package Concurrent;
 
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 class ConcurrentLinkedDequeExample {
 
@@ -26,6 +30,21 @@ class ConcurrentLinkedDequeExample {
         System.out.println(Thread.currentThread().getName() + " - Polled last: " + value);
     }
 
+    /**
+     * Hands up to maxBatch elements from the front to the consumer and returns how
+     * many there were; 0 means the deque was empty.
+     */
+    public int drainFirst(Consumer<? super Integer> consumer, int maxBatch) {
+        return QueueDrain.drain(deque::pollFirst, consumer, maxBatch);
+    }
+
+    /**
+     * As drainFirst, from the back (newest first).
+     */
+    public int drainLast(Consumer<? super Integer> consumer, int maxBatch) {
+        return QueueDrain.drain(deque::pollLast, consumer, maxBatch);
+    }
+
     public static void main(String[] args) {
         ConcurrentLinkedDequeExample example = new ConcurrentLinkedDequeExample();
 
@@ -48,6 +67,130 @@ class ConcurrentLinkedDequeExample {
 
         adderThread.start();
         pollerThread.start();
+
+        try {
+            adderThread.join();
+            pollerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // Whatever the poller missed, in one batch and one log line
+        StringBuilder rest = new StringBuilder();
+        int n = example.drainFirst(value -> rest.append(value).append(' '), Integer.MAX_VALUE);
+        System.out.println("Drained the remaining " + n + ": " + rest.toString().trim());
+
+        compareWithWorkStealing(args.length > 0 ? Integer.parseInt(args[0]) : 18);
+    }
+
+    /**
+     * Runs the same divide-and-conquer workload (every task splits in two until the
+     * given depth) on worker threads sharing one ConcurrentLinkedDeque and on
+     * WorkStealingScheduler, where each worker pushes its subtasks onto its own deque.
+     */
+    public static void compareWithWorkStealing(int depth) {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        System.out.println("=== " + threads + " workers, fan-out depth " + depth + " (" + (1L << depth) + " leaves) ===");
+        for (int round = 0; round < 3; round++) { // the first round doubles as warm-up
+            try (SharedDequePool pool = new SharedDequePool(threads)) {
+                runFanOut("shared ConcurrentLinkedDeque", pool, depth);
+            }
+            try (WorkStealingScheduler scheduler = new WorkStealingScheduler(threads)) {
+                runFanOut("WorkStealingScheduler", scheduler, depth);
+                System.out.println("    steals: " + scheduler.steals());
+            }
+        }
+    }
+
+    private static void runFanOut(String name, Executor executor, int depth) {
+        AtomicLong remainingLeaves = new AtomicLong(1L << depth);
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        executor.execute(new FanOutTask(executor, depth, remainingLeaves, done));
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        long tasks = (2L << depth) - 1;
+        System.out.printf("%-30s %,14.0f tasks/s%n", name, tasks * 1e9 / elapsed);
+    }
+
+    private static final class FanOutTask implements Runnable {
+        private final Executor executor;
+        private final int depth;
+        private final AtomicLong remainingLeaves;
+        private final CountDownLatch done;
+
+        FanOutTask(Executor executor, int depth, AtomicLong remainingLeaves, CountDownLatch done) {
+            this.executor = executor;
+            this.depth = depth;
+            this.remainingLeaves = remainingLeaves;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            if (depth > 0) {
+                executor.execute(new FanOutTask(executor, depth - 1, remainingLeaves, done));
+                executor.execute(new FanOutTask(executor, depth - 1, remainingLeaves, done));
+            } else if (remainingLeaves.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Baseline: every worker pushes and pops at the head of one shared deque, so
+     * each operation is a CAS on the same node and allocates a new one.
+     */
+    private static final class SharedDequePool implements Executor, AutoCloseable {
+        private final ConcurrentLinkedDeque<Runnable> tasks = new ConcurrentLinkedDeque<>();
+        private final Thread[] workers;
+        private volatile boolean shutdown;
+
+        SharedDequePool(int threads) {
+            workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Thread(this::runWorker, "SharedDeque-Worker-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.addFirst(task);
+        }
+
+        private void runWorker() {
+            while (true) {
+                Runnable task = tasks.pollFirst();
+                if (task != null) {
+                    task.run();
+                } else if (shutdown) {
+                    return;
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            shutdown = true;
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
     }
 }
 
@@ -108,4 +251,20 @@ class ConcurrentLinkedDequeExample {
  *    - Task scheduling where tasks can be added or removed from both ends.
  *    - Real-time systems requiring a highly concurrent double-ended queue.
  *    - Maintaining a history of recent events or requests in concurrent environments.
+ * 
+ * Q13: What is a work-stealing deque and how does it differ from ConcurrentLinkedDeque?
+ * A13: Each worker owns one deque (see WorkStealingDeque, a Chase-Lev deque). The owner pushes and pops at the
+ *      bottom without a CAS (only the last element needs one), while idle workers steal from the top with a CAS.
+ *      ConcurrentLinkedDeque treats all threads alike, so every operation at either end costs a CAS and a node.
+ * 
+ * Q14: Why does the owner work LIFO while thieves steal FIFO?
+ * A14: The owner runs the subtask it just created, whose data is still in its cache, while a thief takes the
+ *      oldest task, which in divide-and-conquer code is usually the largest one, so steals are rare and worthwhile.
+ *      ForkJoinPool works the same way.
+ * 
+ * Q15: How should workers wait when the deque is empty?
+ * A15: A tight pollFirst() loop keeps every idle worker at 100% CPU. A long-running consumer can back off
+ *      with an IdleStrategy (spin, then yield, then park for increasing periods) and reset it as soon as it
+ *      finds work; a batch of elements can be taken with drainFirst()/drainLast() in one call. SharedDequePool
+ *      only lives for one comparison run, so its workers just yield between polls.
  */
\ No newline at end of file
@@ -1,6 +1,11 @@
 package Concurrent;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 class ConcurrentLinkedQueueExample {
 
@@ -16,6 +21,20 @@ class ConcurrentLinkedQueueExample {
         System.out.println(Thread.currentThread().getName() + " - Polled: " + value);
     }
 
+    /**
+     * Hands up to maxBatch elements to the consumer and returns how many there
+     * were; 0 means the queue was empty.
+     */
+    public int drain(Consumer<? super Integer> consumer, int maxBatch) {
+        return QueueDrain.drain(queue, consumer, maxBatch);
+    }
+
+    /**
+     * Usage: ConcurrentLinkedQueueExample [bench [items]]
+     *
+     * Without arguments only the short demos run; "bench" adds the comparisons
+     * with SpscArrayQueue and between idle strategies.
+     */
     public static void main(String[] args) {
         ConcurrentLinkedQueueExample example = new ConcurrentLinkedQueueExample();
 
@@ -36,6 +55,190 @@ class ConcurrentLinkedQueueExample {
 
         producerThread.start();
         consumerThread.start();
+
+        try {
+            producerThread.join();
+            consumerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        batchedConsumerExample();
+
+        if (args.length == 0 || !args[0].equals("bench")) {
+            return;
+        }
+        compareWithSpsc(args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000);
+        compareIdleStrategies(500, 1_000);
+    }
+
+    /**
+     * The consumer drains in batches and backs off with an IdleStrategy while the
+     * queue is empty, logging one line per batch.
+     */
+    public static void batchedConsumerExample() {
+        System.out.println("=== Batched consumer ===");
+        ConcurrentLinkedQueueExample example = new ConcurrentLinkedQueueExample();
+        int items = 10;
+
+        Thread producerThread = new Thread(() -> {
+            for (int i = 1; i <= items; i++) {
+                example.queue.add(i);
+                if (i % 4 == 0) {
+                    LockSupport.parkNanos(1_000_000); // pause between bursts
+                }
+            }
+        }, "Producer Thread");
+
+        Thread consumerThread = new Thread(() -> {
+            IdleStrategy idle = new IdleStrategy();
+            StringBuilder batch = new StringBuilder();
+            int received = 0;
+            while (received < items) {
+                batch.setLength(0);
+                int n = example.drain(value -> batch.append(value).append(' '), 16);
+                if (n > 0) {
+                    System.out.println(Thread.currentThread().getName() + " - Drained " + n + ": " + batch.toString().trim());
+                }
+                received += n;
+                idle.idle(n);
+            }
+        }, "Consumer Thread");
+
+        consumerThread.start();
+        producerThread.start();
+        try {
+            producerThread.join();
+            consumerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bursty traffic (a burst of items, then a millisecond of silence) consumed by
+     * a busy poll() loop and by drain() with an IdleStrategy. Prints the CPU time
+     * each consumer burned: the busy loop keeps its core occupied through every
+     * pause, the backing-off one mostly sleeps.
+     */
+    public static void compareIdleStrategies(int bursts, int burstSize) {
+        System.out.println("=== " + bursts + " bursts of " + burstSize + " items, 1 ms apart ===");
+        for (int round = 0; round < 2; round++) { // the first round doubles as warm-up
+            runBursts("poll() + busy spin", bursts, burstSize, (queue, sink) -> {
+                Integer value;
+                while ((value = queue.poll()) == null) {
+                    Thread.onSpinWait();
+                }
+                sink.accept(value);
+                return 1;
+            });
+            IdleStrategy idle = new IdleStrategy();
+            runBursts("drain(256) + IdleStrategy", bursts, burstSize, (queue, sink) -> {
+                int n = QueueDrain.drain(queue, sink, 256);
+                idle.idle(n);
+                return n;
+            });
+        }
+    }
+
+    private interface ConsumerLoop {
+        // Consumes some elements and returns how many
+        int consume(Queue<Integer> queue, Consumer<Integer> sink);
+    }
+
+    private static void runBursts(String name, int bursts, int burstSize, ConsumerLoop loop) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+        long items = (long) bursts * burstSize;
+        Thread producer = new Thread(() -> {
+            for (int b = 0; b < bursts; b++) {
+                for (int i = 0; i < burstSize; i++) {
+                    queue.offer(i & 127);
+                }
+                LockSupport.parkNanos(1_000_000);
+            }
+        }, "Producer Thread");
+
+        long[] sum = new long[1];
+        long[] cpuNanos = new long[1];
+        Thread consumer = new Thread(() -> {
+            long before = mx.getCurrentThreadCpuTime();
+            Consumer<Integer> sink = value -> sum[0] += value;
+            long received = 0;
+            while (received < items) {
+                received += loop.consume(queue, sink);
+            }
+            cpuNanos[0] = mx.getCurrentThreadCpuTime() - before;
+        }, "Consumer Thread");
+
+        long start = System.nanoTime();
+        producer.start();
+        consumer.start();
+        try {
+            producer.join();
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        long expected = bursts * (long) (burstSize / 128 * 8128 + (burstSize % 128) * (burstSize % 128 - 1) / 2);
+        System.out.printf("%-28s wall %,6d ms, consumer CPU %,6d ms (%3.0f%% of a core)%s%n", name,
+                elapsed / 1_000_000, cpuNanos[0] / 1_000_000, 100.0 * cpuNanos[0] / elapsed,
+                sum[0] == expected ? "" : "  (checksum mismatch!)");
+    }
+
+    /**
+     * Runs the same 1:1 pipeline over ConcurrentLinkedQueue and SpscArrayQueue.
+     * With one producer and one consumer the CAS and the node allocated per offer
+     * buy nothing, which the SPSC queue avoids.
+     */
+    public static void compareWithSpsc(int items) {
+        System.out.println("=== 1 producer : 1 consumer, " + items + " items ===");
+        for (int round = 0; round < 3; round++) { // the first round doubles as warm-up
+            runPipeline("ConcurrentLinkedQueue", new ConcurrentLinkedQueue<>(), items);
+            runPipeline("SpscArrayQueue", new SpscArrayQueue<>(1024), items);
+        }
+    }
+
+    private static void runPipeline(String name, Queue<Integer> queue, int items) {
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < items; i++) {
+                Integer value = i;
+                while (!queue.offer(value)) {
+                    Thread.yield(); // full (SPSC only); yield rather than spin so one core is enough
+                }
+            }
+        }, "Producer Thread");
+
+        long[] checksum = new long[1];
+        Thread consumer = new Thread(() -> {
+            long sum = 0L;
+            for (int i = 0; i < items; i++) {
+                Integer value;
+                while ((value = queue.poll()) == null) {
+                    Thread.yield();
+                }
+                sum += value;
+            }
+            checksum[0] = sum;
+        }, "Consumer Thread");
+
+        long start = System.nanoTime();
+        producer.start();
+        consumer.start();
+        try {
+            producer.join();
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        long expected = (long) items * (items - 1) / 2;
+        System.out.printf("%-22s %,14.0f items/s%s%n", name, items * 1e9 / elapsed,
+                checksum[0] == expected ? "" : "  (checksum mismatch!)");
     }
 }
 
@@ -95,6 +298,27 @@ class ConcurrentLinkedQueueExample {
  * 
  * Q14: Can ConcurrentLinkedQueue be used in single-threaded applications?
  * A14: While it can be used, it may not be optimal. Simpler queue implementations like `LinkedList` or `ArrayDeque` are better suited for single-threaded use cases.
+ * 
+ * Q15: What does ConcurrentLinkedQueue cost when there is exactly one producer and one consumer?
+ * A15: Every offer() allocates a node and every offer()/poll() performs a CAS, although with a single thread on
+ *      each end nobody competes for the update. A single-producer/single-consumer array queue such as
+ *      SpscArrayQueue needs neither: each index has one writer and is published with a release write (lazySet).
+ * 
+ * Q16: Why does SpscArrayQueue pad its indices and cache the opposite index?
+ * A16: Padding keeps the producer's tail and the consumer's head on different cache lines (no false sharing).
+ *      The cached copy means the producer reads the consumer's head only when the queue looks full, and the
+ *      consumer reads the tail only when it looks empty, so the cores rarely exchange cache lines.
+ * 
+ * Q17: Why drain a non-blocking queue in batches instead of calling poll() once per element?
+ * A17: Each poll() is still a CAS, but the consumer decides "empty or not", logs and backs off once per batch
+ *      rather than once per element, and keeps its loop and the nodes it walks hot in the cache. Logging every
+ *      element with println costs far more than the poll itself.
+ * 
+ * Q18: How should a consumer wait on an empty ConcurrentLinkedQueue, which has no take()?
+ * A18: Neither with a tight poll() loop, which burns a whole core while nothing arrives, nor by sleeping after
+ *      every miss, which adds latency. An idle strategy (IdleStrategy) spins briefly, then yields, then parks for
+ *      increasing periods, and starts over as soon as work shows up. If the consumer must not poll at all, use
+ *      a BlockingQueue.
  */
 
 
@@ -0,0 +1,408 @@
+package Concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash map from primitive long keys to primitive long values.
+ *
+ * ConcurrentHashMap<Long, Long> boxes every key and value and allocates a Node per
+ * entry, so a busy counters map turns into a steady stream of garbage. This map
+ * keeps keys and values side by side in one long[] per segment (open addressing
+ * with linear probing): no boxing, no per-entry objects, and a lookup usually
+ * touches a single cache line. int values fit without loss.
+ *
+ * The table is split into segments, as in the Java 7 ConcurrentHashMap. Writers
+ * take their segment's write lock; readers use an optimistic StampedLock read and
+ * only fall back to the read lock if a writer got in the way. Removal shifts later
+ * entries back instead of leaving tombstones, so probe sequences stay short.
+ *
+ * Key 0 marks an empty slot in the table, so each segment stores it in a field of
+ * its own.
+ */
+public final class ConcurrentLongLongMap {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * Receives entries from forEach(), without boxing.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongLongMap() {
+        this(DEFAULT_SEGMENTS, 1024);
+    }
+
+    /**
+     * @param segmentCount    number of independently locked segments, rounded up to a power of two
+     * @param initialCapacity expected number of entries
+     */
+    public ConcurrentLongLongMap(int segmentCount, int initialCapacity) {
+        if (segmentCount <= 0 || segmentCount > (1 << 16) || initialCapacity < 0) {
+            throw new IllegalArgumentException("segmentCount=" + segmentCount + ", initialCapacity=" + initialCapacity);
+        }
+        int count = powerOfTwoAtLeast(segmentCount);
+        segments = new Segment[count];
+        int perSegment = powerOfTwoAtLeast(
+                Math.max(MIN_SEGMENT_CAPACITY, (int) Math.ceil(initialCapacity / (double) count / LOAD_FACTOR)));
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        // Segments are picked by the top bits of the hash, slots by the bottom bits
+        segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * Returns the value for the key, or defaultValue if there is none.
+     */
+    public long get(long key, long defaultValue) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash, defaultValue);
+    }
+
+    public boolean containsKey(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).contains(key, hash);
+    }
+
+    /**
+     * Maps the key to the value and returns the previous value, or defaultValue if
+     * there was none.
+     */
+    public long put(long key, long value, long defaultValue) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, defaultValue, false);
+    }
+
+    /**
+     * Maps the key to the value only if it has no value yet. Returns the current
+     * value, or defaultValue if the new mapping was added.
+     */
+    public long putIfAbsent(long key, long value, long defaultValue) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, defaultValue, true);
+    }
+
+    /**
+     * Atomically adds delta to the key's value (0 if absent) and returns the new
+     * value. This is the counters-map operation.
+     */
+    public long addAndGet(long key, long delta) {
+        long hash = hash(key);
+        return segmentFor(hash).addAndGet(key, hash, delta);
+    }
+
+    /**
+     * Removes the key. Returns its value, or defaultValue if it was absent.
+     */
+    public long remove(long key, long defaultValue) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, defaultValue);
+    }
+
+    /**
+     * Sum of the segment sizes; not a snapshot when called during updates.
+     */
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Visits every entry, one segment at a time under its read lock. The action
+     * must not update this map.
+     */
+    public void forEach(EntryConsumer action) {
+        for (Segment segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    // Fibonacci hashing plus a fold, so sequential keys spread over both segment and slot bits
+    static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        int p = Integer.highestOneBit(n);
+        return p < n ? p << 1 : p;
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        // keys at even indices, values at the following odd index; key 0 means empty
+        private long[] table;
+        private int size;
+        private boolean hasZeroKey;
+        private long zeroValue;
+
+        Segment(int capacity) {
+            table = new long[capacity * 2];
+        }
+
+        long get(long key, long hash, long defaultValue) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                long value = find(key, hash, defaultValue);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash, defaultValue);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean contains(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                boolean found = key == 0L ? hasZeroKey : indexOf(table, key, hash) >= 0;
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return key == 0L ? hasZeroKey : indexOf(table, key, hash) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Reads only locals, so an optimistic read that races with a resize or a
+        // shift may return garbage but cannot fail; validate() rejects the result
+        private long find(long key, long hash, long defaultValue) {
+            if (key == 0L) {
+                return hasZeroKey ? zeroValue : defaultValue;
+            }
+            long[] t = table;
+            int index = indexOf(t, key, hash);
+            return index >= 0 ? t[index + 1] : defaultValue;
+        }
+
+        long put(long key, long hash, long value, long defaultValue, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                if (key == 0L) {
+                    long previous = hasZeroKey ? zeroValue : defaultValue;
+                    if (!hasZeroKey || !onlyIfAbsent) {
+                        zeroValue = value;
+                    }
+                    if (!hasZeroKey) {
+                        hasZeroKey = true;
+                        size++;
+                    }
+                    return previous;
+                }
+                int index = slotFor(key, hash);
+                if (table[index] == key) {
+                    long previous = table[index + 1];
+                    if (!onlyIfAbsent) {
+                        table[index + 1] = value;
+                    }
+                    return previous;
+                }
+                insertAt(index, key, value);
+                return defaultValue;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long addAndGet(long key, long hash, long delta) {
+            long stamp = lock.writeLock();
+            try {
+                if (key == 0L) {
+                    if (!hasZeroKey) {
+                        hasZeroKey = true;
+                        size++;
+                        zeroValue = 0L;
+                    }
+                    return zeroValue += delta;
+                }
+                int index = slotFor(key, hash);
+                if (table[index] == key) {
+                    return table[index + 1] += delta;
+                }
+                insertAt(index, key, delta);
+                return delta;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long remove(long key, long hash, long defaultValue) {
+            long stamp = lock.writeLock();
+            try {
+                if (key == 0L) {
+                    if (!hasZeroKey) {
+                        return defaultValue;
+                    }
+                    hasZeroKey = false;
+                    size--;
+                    return zeroValue;
+                }
+                int index = indexOf(table, key, hash);
+                if (index < 0) {
+                    return defaultValue;
+                }
+                long previous = table[index + 1];
+                shiftBack(index);
+                size--;
+                return previous;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.tryOptimisticRead();
+            int s = size;
+            if (stamp != 0L && lock.validate(stamp)) {
+                return s;
+            }
+            stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void forEach(EntryConsumer action) {
+            long stamp = lock.readLock();
+            try {
+                if (hasZeroKey) {
+                    action.accept(0L, zeroValue);
+                }
+                for (int i = 0; i < table.length; i += 2) {
+                    if (table[i] != 0L) {
+                        action.accept(table[i], table[i + 1]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                Arrays.fill(table, 0L);
+                size = 0;
+                hasZeroKey = false;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Index of the key's slot, or -1; probes at most the whole table
+        private static int indexOf(long[] t, long key, long hash) {
+            int mask = t.length - 2;
+            int index = ((int) hash << 1) & mask;
+            for (int probes = t.length >> 1; probes > 0; probes--) {
+                long k = t[index];
+                if (k == key) {
+                    return index;
+                }
+                if (k == 0L) {
+                    return -1;
+                }
+                index = (index + 2) & mask;
+            }
+            return -1;
+        }
+
+        // Write lock held: the key's slot, or the empty slot where it belongs
+        private int slotFor(long key, long hash) {
+            int mask = table.length - 2;
+            int index = ((int) hash << 1) & mask;
+            while (table[index] != key && table[index] != 0L) {
+                index = (index + 2) & mask;
+            }
+            return index;
+        }
+
+        private void insertAt(int index, long key, long value) {
+            table[index] = key;
+            table[index + 1] = value;
+            if (++size > (table.length >> 1) * LOAD_FACTOR) {
+                resize();
+            }
+        }
+
+        private void resize() {
+            long[] old = table;
+            long[] bigger = new long[old.length * 2];
+            int mask = bigger.length - 2;
+            for (int i = 0; i < old.length; i += 2) {
+                long key = old[i];
+                if (key != 0L) {
+                    int index = ((int) hash(key) << 1) & mask;
+                    while (bigger[index] != 0L) {
+                        index = (index + 2) & mask;
+                    }
+                    bigger[index] = key;
+                    bigger[index + 1] = old[i + 1];
+                }
+            }
+            table = bigger;
+        }
+
+        // Backward-shift deletion for linear probing: move later entries of the
+        // same cluster into the hole if that keeps them reachable from their home slot
+        private void shiftBack(int hole) {
+            long[] t = table;
+            int mask = t.length - 2;
+            int index = hole;
+            while (true) {
+                index = (index + 2) & mask;
+                long key = t[index];
+                if (key == 0L) {
+                    break;
+                }
+                int home = ((int) hash(key) << 1) & mask;
+                // Movable unless its home lies cyclically in (hole, index]
+                boolean homeBetween = hole <= index
+                        ? (home > hole && home <= index)
+                        : (home > hole || home <= index);
+                if (!homeBetween) {
+                    t[hole] = key;
+                    t[hole + 1] = t[index + 1];
+                    hole = index;
+                }
+            }
+            t[hole] = 0L;
+            t[hole + 1] = 0L;
+        }
+    }
+}
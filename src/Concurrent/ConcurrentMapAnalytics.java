@@ -0,0 +1,151 @@
+package Concurrent;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Aggregates over a live ConcurrentHashMap with String keys and numeric values
+ * (counters, sizes, totals) using the map's own bulk operations: sum, maximum,
+ * top-N, group-by-prefix and search.
+ *
+ * ConcurrentHashMap's forEach/reduce/search take a parallelismThreshold: the
+ * operation runs sequentially unless the map has at least that many entries, and
+ * otherwise is split into fork/join tasks on the common pool. Long.MAX_VALUE
+ * (SEQUENTIAL) never splits, 1 (MAX_PARALLELISM) splits as far as the pool allows.
+ * Splitting has a fixed cost, so small maps are faster sequentially; the right
+ * threshold depends on the map size, the cost per entry and the number of cores,
+ * which is what ConcurrentHashMapExample.bulkAnalyticsComparison measures.
+ *
+ * The map is not locked: results are weakly consistent with concurrent updates,
+ * like any bulk operation on a ConcurrentHashMap. top-N and group-by collect into
+ * one partial result per worker thread and merge them at the end, so the workers
+ * never contend on a shared result. They are not allocation-free: top-N creates an
+ * entry whenever a key enters a heap, and group-by cuts the prefix out of every
+ * key that has a separator.
+ */
+public class ConcurrentMapAnalytics<V extends Number> {
+
+    public static final long SEQUENTIAL = Long.MAX_VALUE;
+    public static final long MAX_PARALLELISM = 1L;
+
+    private static final Comparator<Map.Entry<String, Long>> BY_VALUE = Map.Entry.comparingByValue();
+
+    private final ConcurrentHashMap<String, V> map;
+    private final long parallelismThreshold;
+
+    /**
+     * @param parallelismThreshold the map size from which bulk operations run in
+     *                             parallel; SEQUENTIAL or MAX_PARALLELISM, or anything in between
+     */
+    public ConcurrentMapAnalytics(ConcurrentHashMap<String, V> map, long parallelismThreshold) {
+        if (parallelismThreshold <= 0) {
+            throw new IllegalArgumentException("parallelismThreshold must be positive");
+        }
+        this.map = map;
+        this.parallelismThreshold = parallelismThreshold;
+    }
+
+    public long parallelismThreshold() {
+        return parallelismThreshold;
+    }
+
+    /**
+     * Sum of all values, via reduceValuesToLong.
+     */
+    public long sum() {
+        return map.reduceValuesToLong(parallelismThreshold, Number::longValue, 0L, Long::sum);
+    }
+
+    /**
+     * The entry with the largest value, or null for an empty map, via reduceEntries.
+     */
+    public Map.Entry<String, V> max() {
+        return map.reduceEntries(parallelismThreshold,
+                (a, b) -> a.getValue().longValue() >= b.getValue().longValue() ? a : b);
+    }
+
+    /**
+     * Some key whose value is at least min, or null if there is none, via search;
+     * the search stops as soon as any task finds one.
+     */
+    public String anyKeyAtLeast(long min) {
+        return map.search(parallelismThreshold, (key, value) -> value.longValue() >= min ? key : null);
+    }
+
+    /**
+     * The n entries with the largest values, largest first. Each worker of the
+     * forEach keeps its own bounded min-heap (O(log n) per entry); the heaps are
+     * merged at the end.
+     */
+    public List<Map.Entry<String, Long>> topN(int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        Collection<PriorityQueue<Map.Entry<String, Long>>> partials = forEachPartial(
+                () -> new PriorityQueue<>(n + 1, BY_VALUE),
+                (heap, key, value) -> offerBounded(heap, key, value.longValue(), n));
+
+        PriorityQueue<Map.Entry<String, Long>> merged = new PriorityQueue<>(n + 1, BY_VALUE);
+        for (PriorityQueue<Map.Entry<String, Long>> heap : partials) {
+            for (Map.Entry<String, Long> entry : heap) {
+                offerBounded(merged, entry.getKey(), entry.getValue(), n);
+            }
+        }
+        List<Map.Entry<String, Long>> result = new ArrayList<>(merged);
+        result.sort(BY_VALUE.reversed());
+        return result;
+    }
+
+    /**
+     * Sum of the values per key prefix: everything before the first occurrence of
+     * separator, or the whole key if it has none. Each worker sums into its own
+     * map; the maps are merged at the end.
+     */
+    public Map<String, Long> sumByPrefix(char separator) {
+        Collection<Map<String, long[]>> partials = forEachPartial(HashMap::new, (groups, key, value) -> {
+            int end = key.indexOf(separator);
+            String prefix = end < 0 ? key : key.substring(0, end);
+            groups.computeIfAbsent(prefix, p -> new long[1])[0] += value.longValue();
+        });
+
+        Map<String, Long> merged = new HashMap<>();
+        for (Map<String, long[]> groups : partials) {
+            for (Map.Entry<String, long[]> group : groups.entrySet()) {
+                merged.merge(group.getKey(), group.getValue()[0], Long::sum);
+            }
+        }
+        return merged;
+    }
+
+    private interface PartialAction<A, V> {
+        void accept(A partial, String key, V value);
+    }
+
+    // Runs a forEach in which every thread accumulates into its own partial result
+    // (created on the thread's first entry) and returns all the partials. They are
+    // kept in a map local to this call, not in a ThreadLocal, so nothing is left
+    // behind on the common pool threads once the call returns.
+    private <A> Collection<A> forEachPartial(Supplier<A> factory, PartialAction<A, ? super V> action) {
+        ConcurrentHashMap<Thread, A> partials = new ConcurrentHashMap<>();
+        map.forEach(parallelismThreshold, (key, value) ->
+                action.accept(partials.computeIfAbsent(Thread.currentThread(), t -> factory.get()), key, value));
+        return partials.values();
+    }
+
+    private static void offerBounded(PriorityQueue<Map.Entry<String, Long>> heap, String key, long value, int n) {
+        if (heap.size() < n) {
+            heap.offer(new AbstractMap.SimpleImmutableEntry<>(key, value));
+        } else if (value > heap.peek().getValue()) {
+            heap.poll();
+            heap.offer(new AbstractMap.SimpleImmutableEntry<>(key, value));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package Concurrent;
+
+/**
+ * Approximate access-frequency counter (a count-min sketch with 4-bit counters),
+ * used by BoundedCache to decide whether a new entry deserves to replace an old one.
+ *
+ * Every long holds sixteen 4-bit counters. A key's frequency is the minimum of
+ * four counters picked by four different hashes, so collisions only ever make a
+ * key look more popular than it is, never less. Counters saturate at 15, and once
+ * the number of recorded accesses reaches ten times the sketch size every counter
+ * is halved ("aging"), so keys that were popular a long time ago fade out.
+ *
+ * Not thread-safe; BoundedCache only touches it while holding its eviction lock.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0x97CB3127L, 0xE2AC4EE7L, 0x7B0C1FA3L, 0xC3A5C85CL
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long maximumSize) {
+        int size = (int) Math.min(Math.max(maximumSize, 16L), 1 << 26);
+        int length = Integer.highestOneBit(size - 1) << 1;
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = 10 * length;
+    }
+
+    /**
+     * Estimated number of recent accesses, 0 to 15.
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            frequency = Math.min(frequency, counter(hash, i));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(hash, i);
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private int counter(int hash, int i) {
+        int index = indexOf(hash, i);
+        int shift = offsetOf(hash, i);
+        return (int) ((table[index] >>> shift) & 0xFL);
+    }
+
+    private boolean incrementAt(int hash, int i) {
+        int index = indexOf(hash, i);
+        int shift = offsetOf(hash, i);
+        long mask = 0xFL << shift;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << shift;
+            return true;
+        }
+        return false; // saturated
+    }
+
+    // Halves every counter: shift each long right by one and clear the bit that
+    // slid into the neighbouring counter
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    // Which of the sixteen 4-bit counters in the long; differs per hash function
+    private static int offsetOf(int hash, int i) {
+        return (((hash >>> (i << 3)) & 3) << 2 | i) << 2;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45D9F3B;
+        x = ((x >>> 16) ^ x) * 0x45D9F3B;
+        return (x >>> 16) ^ x;
+    }
+}
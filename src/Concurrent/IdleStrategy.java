@@ -0,0 +1,80 @@
+package Concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Back-off for a consumer polling a non-blocking queue that may be empty:
+ * spin, then yield, then park for exponentially longer periods.
+ *
+ * Polling ConcurrentLinkedQueue in a tight loop keeps a core at 100% even when
+ * nothing arrives, and on a machine with fewer cores than threads it takes CPU
+ * away from the producers it is waiting for. Parking right away is no better
+ * for bursty traffic: every wake-up costs tens of microseconds. This strategy
+ * spins first (cheapest when work is about to arrive), then yields, then parks
+ * from minParkNanos up to maxParkNanos, and goes back to spinning as soon as the
+ * caller finds work and calls reset().
+ *
+ * An instance keeps per-thread state: give each consumer its own.
+ */
+public final class IdleStrategy {
+
+    private final int maxSpins;
+    private final int maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    private int spins;
+    private int yields;
+    private long parkNanos;
+
+    /**
+     * 100 spins, 10 yields, then parks from 1 us up to 1 ms.
+     */
+    public IdleStrategy() {
+        this(100, 10, 1_000, 1_000_000);
+    }
+
+    public IdleStrategy(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos) {
+        if (maxSpins < 0 || maxYields < 0 || minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException("invalid back-off limits");
+        }
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        this.parkNanos = minParkNanos;
+    }
+
+    /**
+     * Convenience for a poll loop: resets after useful work, backs off otherwise.
+     */
+    public void idle(int workCount) {
+        if (workCount > 0) {
+            reset();
+        } else {
+            idle();
+        }
+    }
+
+    /**
+     * Called after a poll found nothing; each call backs off a little more.
+     */
+    public void idle() {
+        if (spins < maxSpins) {
+            spins++;
+            Thread.onSpinWait();
+        } else if (yields < maxYields) {
+            yields++;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+        }
+    }
+
+    public void reset() {
+        spins = 0;
+        yields = 0;
+        parkNanos = minParkNanos;
+    }
+}
@@ -0,0 +1,158 @@
+package Concurrent;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InstrumentedQueue for a BlockingQueue, which also tells which side of the
+ * queue is stalling:
+ *
+ * - put block time: how long put() and timed offer() waited for space. High
+ *   values mean consumers are falling behind and producers are being held up.
+ * - take wait time: how long take() and timed poll() waited for an element. High
+ *   values mean consumers are starved and the producers are the slow side.
+ *
+ * Only operations that actually wait are timed: each first tries the
+ * non-blocking offer() or poll(), and only if that fails reads the clock and
+ * calls the blocking method. The fast path therefore costs no clock reads, and
+ * the histograms hold the waits themselves; their counts show how often each
+ * side had to wait at all. (The non-blocking first attempt can barge ahead of
+ * waiting threads on a fair queue.)
+ *
+ * A wait interrupted before it completes is not recorded.
+ */
+public class InstrumentedBlockingQueue<E> extends InstrumentedQueue<E> implements BlockingQueue<E> {
+
+    private final BlockingQueue<E> delegate;
+    private final LatencyHistogram putBlockNanos = new LatencyHistogram();
+    private final LatencyHistogram takeWaitNanos = new LatencyHistogram();
+
+    /**
+     * @param sampleEvery sample one operation in this many for sojourn time and
+     *                    depth; 0 turns all telemetry off
+     */
+    public InstrumentedBlockingQueue(BlockingQueue<E> delegate, int sampleEvery) {
+        super(delegate, sampleEvery);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (!sampling) {
+            delegate.put(e);
+            return;
+        }
+        if (!delegate.offer(e)) {
+            long start = System.nanoTime();
+            delegate.put(e);
+            putBlockNanos.record(System.nanoTime() - start);
+        }
+        afterInsert();
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!sampling) {
+            return delegate.offer(e, timeout, unit);
+        }
+        if (!delegate.offer(e)) {
+            long start = System.nanoTime();
+            boolean inserted = delegate.offer(e, timeout, unit);
+            putBlockNanos.record(System.nanoTime() - start);
+            if (!inserted) {
+                return false;
+            }
+        }
+        afterInsert();
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        if (!sampling) {
+            return delegate.take();
+        }
+        E e = delegate.poll();
+        if (e == null) {
+            long start = System.nanoTime();
+            e = delegate.take();
+            takeWaitNanos.record(System.nanoTime() - start);
+        }
+        afterRemove();
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!sampling) {
+            return delegate.poll(timeout, unit);
+        }
+        E e = delegate.poll();
+        if (e == null) {
+            long start = System.nanoTime();
+            e = delegate.poll(timeout, unit);
+            takeWaitNanos.record(System.nanoTime() - start);
+            if (e == null) {
+                return null;
+            }
+        }
+        afterRemove();
+        return e;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return delegate.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        if (!sampling) {
+            return delegate.drainTo(c, maxElements);
+        }
+        int n = delegate.drainTo(c, maxElements);
+        if (n > 0) {
+            afterRemove(n);
+        }
+        return n;
+    }
+
+    /**
+     * Time put() and timed offer() spent waiting for space, in nanoseconds.
+     */
+    public LatencyHistogram putBlockNanos() {
+        return putBlockNanos;
+    }
+
+    /**
+     * Time take() and timed poll() spent waiting for an element, in nanoseconds.
+     */
+    public LatencyHistogram takeWaitNanos() {
+        return takeWaitNanos;
+    }
+
+    @Override
+    public String report() {
+        return super.report() + System.lineSeparator()
+                + "putBlock " + putBlockNanos.summary(1_000.0, "us") + System.lineSeparator()
+                + "takeWait " + takeWaitNanos.summary(1_000.0, "us");
+    }
+
+    @Override
+    public void resetTelemetry() {
+        super.resetTelemetry();
+        putBlockNanos.reset();
+        takeWaitNanos.reset();
+    }
+}
@@ -0,0 +1,216 @@
+package Concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decorator that adds latency and depth telemetry to any Queue: how long
+ * elements wait in the queue (sojourn time) and how deep the queue is.
+ * InstrumentedBlockingQueue adds producer block time and consumer wait time.
+ *
+ * Elements are not wrapped, so the decorated queue keeps its own element type
+ * and semantics. Instead every insertion and removal takes a ticket from one of
+ * two counters, and one ticket in every sampleEvery is sampled: the n-th insertion
+ * and the n-th removal meet in a small ring of stamps, and whichever side comes
+ * second records the difference in a LatencyHistogram. Insertions minus removals
+ * is the depth, recorded at each sampled insertion. For a FIFO queue with one
+ * producer and one consumer the n-th removal is the n-th element; with several
+ * threads the pairing is approximate (tickets are taken just after the queue
+ * operation), and for a priority queue sojourn times are meaningless.
+ *
+ * With sampling off (sampleEvery == 0) every method is a plain delegation after
+ * one branch on a final field. Access the queue only through the decorator, or
+ * the counters drift. Removal through the iterator is not supported.
+ */
+public class InstrumentedQueue<E> extends AbstractQueue<E> {
+
+    private static final int RING_SIZE = 1024;
+
+    private final Queue<E> delegate;
+    final boolean sampling;
+    private final long sampleMask;
+    private final int sampleShift;
+
+    private final PaddedAtomicLong insertions = new PaddedAtomicLong(0);
+    private final PaddedAtomicLong removals = new PaddedAtomicLong(0);
+    // Slot (ticket / sampleEvery) % RING_SIZE: the first side of a sampled ticket to arrive
+    private final AtomicReferenceArray<Stamp> stamps = new AtomicReferenceArray<>(RING_SIZE);
+
+    private final LatencyHistogram sojournNanos = new LatencyHistogram();
+    private final LatencyHistogram depth = new LatencyHistogram();
+
+    private static final class Stamp {
+        final long ticket;
+        final long nanos;
+        final boolean insertion;
+
+        Stamp(long ticket, long nanos, boolean insertion) {
+            this.ticket = ticket;
+            this.nanos = nanos;
+            this.insertion = insertion;
+        }
+    }
+
+    /**
+     * @param sampleEvery sample one operation in this many (rounded up to a power
+     *                    of two); 1 samples everything, 0 turns telemetry off
+     */
+    public InstrumentedQueue(Queue<E> delegate, int sampleEvery) {
+        if (sampleEvery < 0) {
+            throw new IllegalArgumentException("sampleEvery must not be negative");
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.sampling = sampleEvery > 0;
+        int interval = sampleEvery <= 1 ? 1 : Integer.highestOneBit(sampleEvery - 1) << 1;
+        this.sampleMask = interval - 1;
+        this.sampleShift = Integer.numberOfTrailingZeros(interval);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (!delegate.offer(e)) {
+            return false;
+        }
+        if (sampling) {
+            afterInsert();
+        }
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E e = delegate.poll();
+        if (e != null && sampling) {
+            afterRemove();
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return delegate.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!delegate.remove(o)) {
+            return false;
+        }
+        if (sampling) {
+            removals.getAndIncrement(); // keeps the depth right; no sojourn for it
+        }
+        return true;
+    }
+
+    /**
+     * Iterates over the delegate; does not support remove().
+     */
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> it = delegate.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+        };
+    }
+
+    /**
+     * Time from insertion to removal, in nanoseconds.
+     */
+    public LatencyHistogram sojournNanos() {
+        return sojournNanos;
+    }
+
+    /**
+     * Number of elements in the queue, sampled at insertions.
+     */
+    public LatencyHistogram depth() {
+        return depth;
+    }
+
+    /**
+     * One line per histogram, latencies in microseconds.
+     */
+    public String report() {
+        return "sojourn  " + sojournNanos.summary(1_000.0, "us") + System.lineSeparator()
+                + "depth    " + depth.summary(1.0, "elements");
+    }
+
+    public void resetTelemetry() {
+        sojournNanos.reset();
+        depth.reset();
+    }
+
+    // Called once per element actually inserted, with sampling on
+    final void afterInsert() {
+        long ticket = insertions.getAndIncrement();
+        if ((ticket & sampleMask) == 0) {
+            depth.record(ticket + 1 - removals.get());
+            meet(ticket, true);
+        }
+    }
+
+    // Called once per element actually removed, with sampling on
+    final void afterRemove() {
+        long ticket = removals.getAndIncrement();
+        if ((ticket & sampleMask) == 0) {
+            meet(ticket, false);
+        }
+    }
+
+    final void afterRemove(int n) {
+        long first = removals.getAndAdd(n);
+        // The sampled tickets in [first, first + n)
+        for (long ticket = (first + sampleMask) & ~sampleMask; ticket < first + n; ticket += sampleMask + 1) {
+            meet(ticket, false);
+        }
+    }
+
+    // The second side of a ticket to arrive records the sojourn; a stamp left by
+    // the other side of an older ticket is simply overwritten (that sample is lost)
+    private void meet(long ticket, boolean insertion) {
+        long now = System.nanoTime();
+        int slot = (int) ((ticket >>> sampleShift) & (RING_SIZE - 1));
+        while (true) {
+            Stamp current = stamps.get(slot);
+            if (current != null && current.ticket == ticket && current.insertion != insertion) {
+                stamps.compareAndSet(slot, current, null);
+                long inserted = insertion ? now : current.nanos;
+                long removed = insertion ? current.nanos : now;
+                sojournNanos.record(removed - inserted); // removed first (raced ahead): recorded as 0
+                return;
+            }
+            if (current != null && current.ticket > ticket) {
+                return; // the ring has wrapped past us
+            }
+            if (stamps.compareAndSet(slot, current, new Stamp(ticket, now, insertion))) {
+                return;
+            }
+        }
+    }
+}
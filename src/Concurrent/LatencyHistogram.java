@@ -0,0 +1,128 @@
+package Concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values (nanoseconds, queue depths)
+ * with log-linear buckets, in the spirit of HdrHistogram.
+ *
+ * Values 0..7 get a bucket each; above that every power of two is split into 8
+ * buckets, so a bucket's width is at most 1/8 of its lower bound and a reported
+ * percentile is within 12.5% of the true value. 488 buckets cover the whole long
+ * range. record() is a few bit operations and one atomic increment, so it can be
+ * called from any number of threads on a hot path.
+ *
+ * Reads are not atomic with respect to concurrent record() calls; they describe
+ * some recent state, which is what telemetry needs.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records one value; negative values count as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.getAndIncrement(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * The value below which the given percentage (0-100) of the recorded values
+     * fall, rounded up to the end of its bucket; 0 if nothing was recorded.
+     */
+    public long percentile(double percent) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percent) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * One line such as "count=1,000 mean=12.3 p50=10.0 p99=80.0 max=95.0 us",
+     * with every value divided by scale.
+     */
+    public String summary(double scale, String unit) {
+        return String.format("count=%,d mean=%.1f p50=%.1f p99=%.1f p99.9=%.1f max=%.1f %s",
+                count(), mean() / scale, percentile(50) / scale, percentile(99) / scale,
+                percentile(99.9) / scale, max() / scale, unit);
+    }
+
+    @Override
+    public String toString() {
+        return summary(1.0, "");
+    }
+
+    // 0..7 map to themselves; otherwise (exponent - 2) * 8 plus the 3 bits below the top bit
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return bucket + 1 < BUCKETS ? lowerBoundOf(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,415 @@
+package Concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, lock-free, multi-producer/multi-consumer array queue that implements
+ * {@link BlockingQueue}.
+ *
+ * ArrayBlockingQueue guards both ends with one ReentrantLock, so every put and
+ * take contends on it. Here every slot carries a sequence number (Dmitry Vyukov's
+ * bounded MPMC algorithm): a producer claims a position with one CAS on the tail,
+ * writes the element and then releases the slot by bumping its sequence; a
+ * consumer does the same on the head. Producers and consumers therefore never
+ * touch the same counter, and two producers only collide on the tail CAS.
+ *
+ * The lock is used only on the slow path: put() parks when the queue is full and
+ * take() parks when it is empty. The fast path checks a waiter count after each
+ * successful operation and only then takes the lock to signal.
+ *
+ * remove(Object) is a slow path: it scans the occupied slots and swaps the
+ * element for a REMOVED marker, which consumers skip when they reach it. Order is
+ * kept and put/take stay lock-free, but the slot is only freed for producers
+ * once the consumers get there, so remainingCapacity() does not grow right away.
+ *
+ * The capacity is rounded up to a power of two. Null elements are not allowed.
+ * Iteration is weakly consistent; its remove() removes exactly the element last
+ * returned, if it is still in the queue.
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object REMOVED = new Object();
+
+    // Each on its own cache line, so producers and consumers do not false-share
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0L); // next position to offer into
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0L); // next position to poll from
+
+    private final Object[] elements;
+    private final long[] sequences;
+    private final int mask;
+
+    // Slow path only: threads that found the queue full/empty park here
+    private final ReentrantLock parkLock = new ReentrantLock();
+    private final Condition notEmpty = parkLock.newCondition();
+    private final Condition notFull = parkLock.newCondition();
+    private final AtomicInteger waitingTakers = new AtomicInteger();
+    private final AtomicInteger waitingPutters = new AtomicInteger();
+    // REMOVED markers not yet passed by a consumer; size() does not count them
+    private final AtomicInteger removedMarkers = new AtomicInteger();
+
+    public MpmcArrayBlockingQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new Object[size];
+        this.sequences = new long[size];
+        this.mask = size - 1;
+        // Slot i is free for the producer that claims position i
+        for (int i = 0; i < size; i++) {
+            SEQUENCE.setRelease(sequences, i, (long) i);
+        }
+    }
+
+    /**
+     * Lock-free insert; returns false immediately when the queue is full.
+     */
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            long difference = sequence - pos;
+            if (difference == 0) {
+                // The slot is free for position 'pos': try to claim it
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements[index] = e;
+                    SEQUENCE.setRelease(sequences, index, pos + 1); // publish to consumers
+                    signalIfWaiting(waitingTakers, notEmpty);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds the element from one lap earlier: full
+                return false;
+            } else {
+                // Another producer claimed this position first
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Lock-free removal; returns null immediately when the queue is empty.
+     */
+    @Override
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            long difference = sequence - (pos + 1);
+            if (difference == 0) {
+                // The slot holds the element for position 'pos': try to claim it
+                if (head.compareAndSet(pos, pos + 1)) {
+                    // getAndSet, so a concurrent remove(Object) either wins or sees null
+                    Object e = ELEMENT.getAndSet(elements, index, (Object) null);
+                    // Free the slot for the producer one lap ahead
+                    SEQUENCE.setRelease(sequences, index, pos + mask + 1);
+                    signalIfWaiting(waitingPutters, notFull);
+                    if (e != REMOVED) {
+                        @SuppressWarnings("unchecked")
+                        E element = (E) e;
+                        return element;
+                    }
+                    removedMarkers.decrementAndGet(); // skip it and try the next position
+                }
+                pos = head.get();
+            } else if (difference < 0) {
+                // Nothing published at this position yet: empty
+                return null;
+            } else {
+                // Another consumer took this position first
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (offer(e)) {
+            return;
+        }
+        parkLock.lockInterruptibly();
+        waitingPutters.incrementAndGet();
+        VarHandle.fullFence();
+        try {
+            // Registered before re-checking, so either this offer succeeds or the
+            // consumer that frees a slot sees the waiter and signals
+            while (!offer(e)) {
+                notFull.await();
+            }
+        } finally {
+            waitingPutters.decrementAndGet();
+            parkLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        parkLock.lockInterruptibly();
+        waitingPutters.incrementAndGet();
+        VarHandle.fullFence();
+        try {
+            while (!offer(e)) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            waitingPutters.decrementAndGet();
+            parkLock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        parkLock.lockInterruptibly();
+        waitingTakers.incrementAndGet();
+        VarHandle.fullFence();
+        try {
+            while ((e = poll()) == null) {
+                notEmpty.await();
+            }
+            return e;
+        } finally {
+            waitingTakers.decrementAndGet();
+            parkLock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        parkLock.lockInterruptibly();
+        waitingTakers.incrementAndGet();
+        VarHandle.fullFence();
+        try {
+            while ((e = poll()) == null) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return e;
+        } finally {
+            waitingTakers.decrementAndGet();
+            parkLock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            if (sequence - (pos + 1) < 0) {
+                return null;
+            }
+            if (sequence == pos + 1) {
+                Object e = ELEMENT.getAcquire(elements, index);
+                // Only valid if no consumer took this position meanwhile
+                if (e != null && (long) SEQUENCE.getAcquire(sequences, index) == pos + 1) {
+                    if (e != REMOVED) {
+                        @SuppressWarnings("unchecked")
+                        E element = (E) e;
+                        return element;
+                    }
+                    pos++; // look behind the removed element
+                    continue;
+                }
+            }
+            pos = Math.max(pos + 1, head.get());
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0L, occupiedSlots() - removedMarkers.get());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Slots still held by removed elements do not count as free.
+     */
+    @Override
+    public int remainingCapacity() {
+        return capacity() - (int) occupiedSlots();
+    }
+
+    private long occupiedSlots() {
+        // Read head first: tail can only grow, so the difference never goes negative
+        long h = head.get();
+        long t = tail.get();
+        return Math.max(0L, Math.min(t - h, (long) capacity()));
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Slow path: O(size) scan. Removes one element equal to o, leaving a marker
+     * that consumers skip.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        long t = tail.get();
+        for (long pos = head.get(); pos < t; pos++) {
+            Object e = publishedAt(pos);
+            if (e != null && o.equals(e) && removeAt(pos, e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Weakly consistent: reflects the elements present at some point during the
+     * call. remove() removes the element last returned if no consumer took it yet.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        long t = tail.get();
+        List<Long> positions = new ArrayList<>();
+        List<E> snapshot = new ArrayList<>();
+        for (long pos = head.get(); pos < t; pos++) {
+            Object e = publishedAt(pos);
+            if (e != null) {
+                positions.add(pos);
+                @SuppressWarnings("unchecked")
+                E element = (E) e;
+                snapshot.add(element);
+            }
+        }
+        return new Iterator<E>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public E next() {
+                if (next >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                return snapshot.get(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(positions.get(last), snapshot.get(last));
+                last = -1;
+            }
+        };
+    }
+
+    // The element published at pos and not yet consumed or removed, else null
+    private Object publishedAt(long pos) {
+        int index = (int) pos & mask;
+        if ((long) SEQUENCE.getAcquire(sequences, index) != pos + 1) {
+            return null;
+        }
+        Object e = ELEMENT.getAcquire(elements, index);
+        return e == REMOVED ? null : e;
+    }
+
+    // Replaces e at pos with the marker, unless a consumer took it first. If the
+    // slot was reused meanwhile and holds the same object again, that later
+    // occurrence is removed instead, which is just as valid.
+    private boolean removeAt(long pos, Object e) {
+        if (ELEMENT.compareAndSet(elements, (int) pos & mask, e, REMOVED)) {
+            removedMarkers.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the park lock only when a thread is actually parked. The full fence
+     * orders the slot release above before the waiter check; a parking thread
+     * increments the waiter count and fences before re-checking the queue, so at
+     * least one side always sees the other.
+     */
+    private void signalIfWaiting(AtomicInteger waiters, Condition condition) {
+        VarHandle.fullFence();
+        if (waiters.get() > 0) {
+            parkLock.lock();
+            try {
+                condition.signal();
+            } finally {
+                parkLock.unlock();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+package Concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, relaxed-priority BlockingQueue ("MultiQueue") built from several
+ * independently locked binary heaps.
+ *
+ * PriorityBlockingQueue puts one heap behind one lock, so every offer and poll
+ * in the process queues up on it. Here an insert goes into a randomly chosen heap
+ * whose lock is free. A removal looks at the smallest elements of two random
+ * heaps (read without locking) and takes the better of the two ("power of two
+ * choices"). Threads rarely meet on the same lock, at the price of ordering: a
+ * poll returns one of the smallest elements, usually within the top few times
+ * the number of heaps, not always the very smallest.
+ *
+ * Capacity is enforced with a pair of semaphores, as in a bounded buffer:
+ * put() blocks while the queue is full, take() blocks while it is empty, and the
+ * timed and non-blocking variants give up instead. So a slow consumer slows its
+ * producers down rather than letting the queue grow until the heap is exhausted.
+ *
+ * Null elements are not allowed. Iteration is a weakly consistent snapshot in no
+ * particular order.
+ */
+public class MultiQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final Heap<E>[] heaps;
+    private final Comparator<? super E> comparator;
+    private final int capacity;
+    private final Semaphore freeSlots;
+    private final Semaphore availableItems = new Semaphore(0);
+
+    private static final class Heap<E> {
+        final ReentrantLock lock = new ReentrantLock();
+        final PriorityQueue<E> queue;
+        volatile E top; // the heap's minimum, refreshed under the lock
+
+        Heap(Comparator<? super E> comparator) {
+            queue = new PriorityQueue<>(comparator);
+        }
+    }
+
+    /**
+     * Natural ordering, with four heaps per available processor.
+     */
+    public MultiQueue(int capacity) {
+        this(capacity, 4 * Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * @param heapCount  number of heaps; more heaps mean less contention and a
+     *                   looser order
+     * @param comparator ordering, or null for natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    public MultiQueue(int capacity, int heapCount, Comparator<? super E> comparator) {
+        if (capacity <= 0 || heapCount <= 0) {
+            throw new IllegalArgumentException("capacity and heapCount must be positive");
+        }
+        this.capacity = capacity;
+        this.freeSlots = new Semaphore(capacity);
+        this.comparator = comparator;
+        this.heaps = (Heap<E>[]) new Heap<?>[Math.max(2, heapCount)];
+        for (int i = 0; i < heaps.length; i++) {
+            heaps[i] = new Heap<>(comparator);
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        if (!freeSlots.tryAcquire()) {
+            return false;
+        }
+        insert(e);
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        freeSlots.acquire(); // backpressure: wait for a consumer to free a slot
+        insert(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        if (!freeSlots.tryAcquire(timeout, unit)) {
+            return false;
+        }
+        insert(e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        if (!availableItems.tryAcquire()) {
+            return null;
+        }
+        return removeOne();
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        availableItems.acquire();
+        return removeOne();
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!availableItems.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return removeOne();
+    }
+
+    /**
+     * The smallest of the heaps' minimums at some moment during the call.
+     */
+    @Override
+    public E peek() {
+        E best = null;
+        for (Heap<E> heap : heaps) {
+            E top = heap.top;
+            if (top != null && (best == null || compare(top, best) < 0)) {
+                best = top;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int size() {
+        return availableItems.availablePermits();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return freeSlots.availablePermits();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null || !availableItems.tryAcquire()) {
+            return false;
+        }
+        // Holding an item permit keeps takers from waiting for the element we remove
+        for (Heap<E> heap : heaps) {
+            heap.lock.lock();
+            try {
+                if (heap.queue.remove(o)) {
+                    heap.top = heap.queue.peek();
+                    freeSlots.release();
+                    return true;
+                }
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+        availableItems.release();
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        for (Heap<E> heap : heaps) {
+            heap.lock.lock();
+            try {
+                snapshot.addAll(heap.queue);
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+        };
+    }
+
+    // A free slot has been acquired: push into any heap whose lock is free. If the
+    // element cannot be ordered (not Comparable, or the comparator throws), the
+    // slot is given back, so a failed insert does not shrink the capacity.
+    private void insert(E e) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            Heap<E> heap = heaps[random.nextInt(heaps.length)];
+            if (heap.lock.tryLock()) {
+                try {
+                    // Compare before offering, so a throwing compare leaves the heap untouched
+                    boolean newTop = heap.top == null || compare(e, heap.top) < 0;
+                    heap.queue.offer(e);
+                    if (newTop) {
+                        heap.top = e;
+                    }
+                } catch (RuntimeException | Error ex) {
+                    freeSlots.release();
+                    throw ex;
+                } finally {
+                    heap.lock.unlock();
+                }
+                availableItems.release();
+                return;
+            }
+        }
+    }
+
+    // An item permit has been acquired, so some heap holds an element for us
+    private E removeOne() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Two-choice rounds: a busy heap, or one another taker just emptied, means choosing again
+        for (int round = 0; round < 2 * heaps.length; round++) {
+            Heap<E> heap = chooseOfTwo(random);
+            if (heap != null && heap.lock.tryLock()) {
+                try {
+                    E e = pollLocked(heap);
+                    if (e != null) {
+                        return e;
+                    }
+                } finally {
+                    heap.lock.unlock();
+                }
+            }
+        }
+        // Unlucky so far: sweep the heaps in order, waiting for their locks
+        for (int i = 0; ; i = (i + 1) % heaps.length) {
+            Heap<E> heap = heaps[i];
+            heap.lock.lock();
+            try {
+                E e = pollLocked(heap);
+                if (e != null) {
+                    return e;
+                }
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+    }
+
+    private E pollLocked(Heap<E> heap) {
+        E e = heap.queue.poll();
+        if (e != null) {
+            heap.top = heap.queue.peek();
+            freeSlots.release();
+        }
+        return e;
+    }
+
+    // The non-empty heap with the smaller minimum out of two random picks, or null if both looked empty
+    private Heap<E> chooseOfTwo(ThreadLocalRandom random) {
+        Heap<E> a = heaps[random.nextInt(heaps.length)];
+        Heap<E> b = heaps[random.nextInt(heaps.length)];
+        E topA = a.top;
+        E topB = b.top;
+        if (topA == null) {
+            return topB == null ? null : b;
+        }
+        if (topB == null) {
+            return a;
+        }
+        return compare(topA, topB) <= 0 ? a : b;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        return comparator != null ? comparator.compare(a, b) : ((Comparable<? super E>) a).compareTo(b);
+    }
+}
@@ -0,0 +1,406 @@
+package Concurrent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Concurrent key/value store whose entries live outside the Java heap, with the
+ * same putData/readData surface as ConcurrentHashMapExample.
+ *
+ * A ConcurrentHashMap with millions of entries is millions of objects the garbage
+ * collector has to trace on every full marking cycle. Here keys and values are
+ * serialized as bytes into a fixed number of segments, each one a direct (or
+ * memory-mapped) ByteBuffer, so the heap only holds a handful of objects no
+ * matter how much data is stored.
+ *
+ * Every segment has its own read/write lock (lock striping, as in the Java 7
+ * ConcurrentHashMap), an open-addressing index of (hash, offset) slots and an
+ * append-only data area of records [int keyLength][int valueLength][key][value].
+ * An update appends a new record and repoints the slot; when the data area fills
+ * up, the segment compacts its live records in place and rebuilds its index.
+ *
+ * With a file, every segment is mapped from it and the index lives in the file
+ * too, so reopening is near instant: nothing is rebuilt or read up front, pages
+ * are faulted in as they are touched. flush() forces the mappings to disk; there
+ * is no journal, so a crash during an update can leave that segment inconsistent
+ * (see synchronization.waitnotify.JournalBuffer for a durable log).
+ *
+ * Segment layout (native byte order):
+ *   [0]  int count, int tombstones, int dataEnd
+ *   [64] long[slots] index: high int = key hash, low int = record offset (0 empty, -1 removed)
+ *   ...  records up to the end of the segment
+ */
+public class OffHeapMap implements AutoCloseable {
+
+    private static final int MAGIC = 0x4F48_4D31; // "OHM1"
+    private static final int FILE_HEADER = 64;
+    private static final int SEGMENT_HEADER = 64;
+    private static final int COUNT_OFFSET = 0;
+    private static final int TOMBSTONES_OFFSET = 4;
+    private static final int DATA_END_OFFSET = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final FileChannel channel; // null when the store is not persistent
+
+    /**
+     * In-memory store backed by direct buffers.
+     *
+     * @param segmentCount      number of independently locked segments, a power of two
+     * @param entriesPerSegment maximum number of keys per segment
+     * @param bytesPerSegment   size of each segment, index included
+     */
+    public OffHeapMap(int segmentCount, int entriesPerSegment, int bytesPerSegment) {
+        checkLayout(segmentCount, entriesPerSegment, bytesPerSegment);
+        this.channel = null;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytesPerSegment).order(ByteOrder.nativeOrder());
+            segments[i] = new Segment(buffer, entriesPerSegment, true);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Store backed by a memory-mapped file. An existing file with the same layout
+     * is reopened with all its entries; a new one is created and initialized.
+     */
+    public OffHeapMap(Path file, int segmentCount, int entriesPerSegment, int bytesPerSegment) throws IOException {
+        checkLayout(segmentCount, entriesPerSegment, bytesPerSegment);
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER);
+            header.order(ByteOrder.nativeOrder());
+            if (!fresh && (header.getInt(0) != MAGIC || header.getInt(4) != segmentCount
+                    || header.getInt(8) != entriesPerSegment || header.getInt(12) != bytesPerSegment)) {
+                throw new IOException(file + " is not an OffHeapMap file with this layout");
+            }
+            this.segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long position = FILE_HEADER + (long) i * bytesPerSegment;
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, position, bytesPerSegment);
+                segments[i] = new Segment(mapping.order(ByteOrder.nativeOrder()), entriesPerSegment, fresh);
+            }
+            if (fresh) {
+                header.putInt(4, segmentCount);
+                header.putInt(8, entriesPerSegment);
+                header.putInt(12, bytesPerSegment);
+                header.putInt(0, MAGIC); // written last: a half-initialized file is rejected
+                header.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    private static void checkLayout(int segmentCount, int entriesPerSegment, int bytesPerSegment) {
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1 || segmentCount > (1 << 16)) {
+            throw new IllegalArgumentException("segmentCount must be a power of two: " + segmentCount);
+        }
+        if (entriesPerSegment <= 0 || entriesPerSegment > (1 << 26)) {
+            throw new IllegalArgumentException("entriesPerSegment out of range: " + entriesPerSegment);
+        }
+        long index = (long) slotsFor(entriesPerSegment) * Long.BYTES;
+        if (SEGMENT_HEADER + index + RECORD_HEADER > bytesPerSegment) {
+            throw new IllegalArgumentException("bytesPerSegment too small for " + entriesPerSegment + " entries");
+        }
+    }
+
+    // Index sized for a load factor of at most one half, tombstones included
+    private static int slotsFor(int entries) {
+        return Integer.highestOneBit(entries - 1 | 1) << 2;
+    }
+
+    public void putData(String key, Integer value) {
+        byte[] bytes = new byte[Integer.BYTES];
+        ByteBuffer.wrap(bytes).putInt(value);
+        put(key.getBytes(StandardCharsets.UTF_8), bytes);
+    }
+
+    public Integer readData(String key) {
+        byte[] bytes = get(key.getBytes(StandardCharsets.UTF_8));
+        return bytes == null ? null : ByteBuffer.wrap(bytes).getInt();
+    }
+
+    /**
+     * Stores a copy of the value. Returns true if the key was already present.
+     *
+     * @throws IllegalStateException if the key's segment has no room left even
+     *                               after compaction
+     */
+    public boolean put(byte[] key, byte[] value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, value, hash);
+    }
+
+    /**
+     * Returns a copy of the value, or null if the key is absent.
+     */
+    public byte[] get(byte[] key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean remove(byte[] key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count();
+        }
+        return size;
+    }
+
+    /**
+     * Writes the mapped segments back to the file; a no-op for an in-memory store.
+     */
+    public void flush() {
+        if (channel == null) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final ByteBuffer buffer;
+        private final int slots;
+        private final int mask;
+        private final int maxEntries;
+        private final int dataStart;
+
+        Segment(ByteBuffer buffer, int maxEntries, boolean initialize) {
+            this.buffer = buffer;
+            this.maxEntries = maxEntries;
+            this.slots = slotsFor(maxEntries);
+            this.mask = slots - 1;
+            this.dataStart = SEGMENT_HEADER + slots * Long.BYTES;
+            if (initialize) {
+                buffer.putInt(COUNT_OFFSET, 0);
+                buffer.putInt(TOMBSTONES_OFFSET, 0);
+                buffer.putInt(DATA_END_OFFSET, dataStart);
+            }
+        }
+
+        int count() {
+            lock.readLock().lock();
+            try {
+                return buffer.getInt(COUNT_OFFSET);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        byte[] get(byte[] key, int hash) {
+            lock.readLock().lock();
+            try {
+                int slot = find(key, hash);
+                if (slot < 0) {
+                    return null;
+                }
+                int record = offsetAt(slot);
+                byte[] value = new byte[buffer.getInt(record + 4)];
+                buffer.get(record + RECORD_HEADER + key.length, value);
+                return value;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        boolean put(byte[] key, byte[] value, int hash) {
+            int recordSize = RECORD_HEADER + key.length + value.length;
+            lock.writeLock().lock();
+            try {
+                int slot = find(key, hash);
+                boolean present = slot >= 0;
+                if (!present && buffer.getInt(COUNT_OFFSET) >= maxEntries) {
+                    throw new IllegalStateException("segment is full (" + maxEntries + " entries)");
+                }
+                if (buffer.getInt(DATA_END_OFFSET) + (long) recordSize > buffer.capacity()
+                        || (!present && buffer.getInt(COUNT_OFFSET) + buffer.getInt(TOMBSTONES_OFFSET) >= slots / 2)) {
+                    compact();
+                    slot = find(key, hash);
+                    if (buffer.getInt(DATA_END_OFFSET) + (long) recordSize > buffer.capacity()) {
+                        throw new IllegalStateException("segment data area is full");
+                    }
+                }
+
+                int record = buffer.getInt(DATA_END_OFFSET);
+                buffer.putInt(record, key.length);
+                buffer.putInt(record + 4, value.length);
+                buffer.put(record + RECORD_HEADER, key);
+                buffer.put(record + RECORD_HEADER + key.length, value);
+                buffer.putInt(DATA_END_OFFSET, record + recordSize);
+
+                if (present) {
+                    setSlot(slot, hash, record); // the old record becomes garbage
+                } else {
+                    int free = freeSlot(hash);
+                    if (offsetAt(free) == REMOVED) {
+                        buffer.putInt(TOMBSTONES_OFFSET, buffer.getInt(TOMBSTONES_OFFSET) - 1);
+                    }
+                    setSlot(free, hash, record);
+                    buffer.putInt(COUNT_OFFSET, buffer.getInt(COUNT_OFFSET) + 1);
+                }
+                return present;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean remove(byte[] key, int hash) {
+            lock.writeLock().lock();
+            try {
+                int slot = find(key, hash);
+                if (slot < 0) {
+                    return false;
+                }
+                setSlot(slot, hash, REMOVED);
+                buffer.putInt(COUNT_OFFSET, buffer.getInt(COUNT_OFFSET) - 1);
+                buffer.putInt(TOMBSTONES_OFFSET, buffer.getInt(TOMBSTONES_OFFSET) + 1);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void force() {
+            lock.readLock().lock();
+            try {
+                ((MappedByteBuffer) buffer).force();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Slot holding the key, or -1
+        private int find(byte[] key, int hash) {
+            int slot = hash & mask;
+            for (int probes = 0; probes < slots; probes++) {
+                int offset = offsetAt(slot);
+                if (offset == EMPTY) {
+                    return -1;
+                }
+                if (offset != REMOVED && hashAt(slot) == hash && keyEquals(offset, key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        // First empty or removed slot on the key's probe sequence
+        private int freeSlot(int hash) {
+            int slot = hash & mask;
+            while (true) {
+                int offset = offsetAt(slot);
+                if (offset == EMPTY || offset == REMOVED) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private boolean keyEquals(int record, byte[] key) {
+            if (buffer.getInt(record) != key.length) {
+                return false;
+            }
+            int start = record + RECORD_HEADER;
+            for (int i = 0; i < key.length; i++) {
+                if (buffer.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Slides live records down over the garbage, in offset order so a record
+         * never overwrites one that has not moved yet, and rebuilds the index
+         * without tombstones.
+         */
+        private void compact() {
+            int count = buffer.getInt(COUNT_OFFSET);
+            long[] live = new long[count]; // (offset << 32) | hash, sortable by offset
+            int n = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = offsetAt(slot);
+                if (offset != EMPTY && offset != REMOVED) {
+                    live[n++] = ((long) offset << 32) | (hashAt(slot) & 0xFFFF_FFFFL);
+                }
+            }
+            Arrays.sort(live, 0, n);
+
+            for (int slot = 0; slot < slots; slot++) {
+                setSlot(slot, 0, EMPTY);
+            }
+            int write = dataStart;
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < n; i++) {
+                int offset = (int) (live[i] >>> 32);
+                int hash = (int) live[i];
+                int size = RECORD_HEADER + buffer.getInt(offset) + buffer.getInt(offset + 4);
+                if (offset != write) {
+                    if (scratch.length < size) {
+                        scratch = new byte[Math.max(size, scratch.length * 2)];
+                    }
+                    buffer.get(offset, scratch, 0, size);
+                    buffer.put(write, scratch, 0, size);
+                }
+                setSlot(freeSlot(hash), hash, write);
+                write += size;
+            }
+            buffer.putInt(DATA_END_OFFSET, write);
+            buffer.putInt(TOMBSTONES_OFFSET, 0);
+        }
+
+        private int hashAt(int slot) {
+            return (int) (buffer.getLong(SEGMENT_HEADER + slot * Long.BYTES) >>> 32);
+        }
+
+        private int offsetAt(int slot) {
+            return (int) buffer.getLong(SEGMENT_HEADER + slot * Long.BYTES);
+        }
+
+        private void setSlot(int slot, int hash, int offset) {
+            buffer.putLong(SEGMENT_HEADER + slot * Long.BYTES, ((long) hash << 32) | (offset & 0xFFFF_FFFFL));
+        }
+    }
+}
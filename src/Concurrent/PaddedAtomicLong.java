@@ -0,0 +1,98 @@
+package Concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Padding placed before the counter. Superclass fields are laid out before
+ * subclass fields, so the class hierarchy keeps the value on its own cache line.
+ */
+abstract class PaddedAtomicLongLeftPad {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedAtomicLongValue extends PaddedAtomicLongLeftPad {
+    volatile long value;
+}
+
+abstract class PaddedAtomicLongRightPad extends PaddedAtomicLongValue {
+    long p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * A long counter on its own cache line, for hot indices such as a queue's head and
+ * tail. Two plain AtomicLongs allocated together usually share a 64-byte line, so
+ * a producer updating one and a consumer updating the other keep invalidating each
+ * other's cache ("false sharing"). The padding prevents that.
+ */
+public final class PaddedAtomicLong extends PaddedAtomicLongRightPad {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(PaddedAtomicLongValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public PaddedAtomicLong(long initialValue) {
+        VALUE.setVolatile(this, initialValue);
+    }
+
+    /**
+     * Volatile read.
+     */
+    public long get() {
+        return value;
+    }
+
+    /**
+     * Acquire read: sees everything written before the matching lazySet().
+     */
+    public long getAcquire() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    /**
+     * Plain read; only safe from the single thread that writes this counter.
+     */
+    public long getPlain() {
+        return (long) VALUE.get(this);
+    }
+
+    /**
+     * Plain write; only for a value that a single thread reads and writes.
+     */
+    public void setPlain(long newValue) {
+        VALUE.set(this, newValue);
+    }
+
+    /**
+     * Volatile write.
+     */
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    /**
+     * Release write (AtomicLong.lazySet): publishes earlier writes without the
+     * full StoreLoad fence of a volatile write.
+     */
+    public void lazySet(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    public boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+
+    public long getAndAdd(long delta) {
+        return (long) VALUE.getAndAdd(this, delta);
+    }
+
+    public long getAndIncrement() {
+        return getAndAdd(1L);
+    }
+}
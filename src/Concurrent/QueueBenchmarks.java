@@ -0,0 +1,99 @@
+package Concurrent;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import benchmark.QueueBenchmark;
+
+/**
+ * The queues demonstrated in this package as benchmark.QueueBenchmark subjects.
+ *
+ * The example classes print every operation, so the underlying JDK collections are
+ * measured directly, used the same way the examples use them. The non-blocking
+ * queues have no take(), so their consumers spin on poll() like a polling consumer
+ * would.
+ */
+public class QueueBenchmarks {
+
+    private static final int CAPACITY = 1024;
+
+    public static List<QueueBenchmark.Subject> subjects() {
+        return List.of(
+                QueueBenchmark.mpmc("ArrayBlockingQueue", () -> blocking(new ArrayBlockingQueue<>(CAPACITY))),
+                QueueBenchmark.mpmc("MpmcArrayBlockingQueue", () -> blocking(new MpmcArrayBlockingQueue<>(CAPACITY))),
+                QueueBenchmark.mpmc("LinkedBlockingQueue", () -> blocking(new LinkedBlockingQueue<>())),
+                QueueBenchmark.mpmc("PriorityBlockingQueue", () -> blocking(new PriorityBlockingQueue<>())),
+                QueueBenchmark.mpmc("MultiQueue (relaxed priority)", () -> blocking(new MultiQueue<>(CAPACITY))),
+                QueueBenchmark.mpmc("ConcurrentLinkedQueue", () -> polling(new ConcurrentLinkedQueue<>())),
+                QueueBenchmark.spsc("SpscArrayQueue", () -> polling(new SpscArrayQueue<>(CAPACITY))),
+                QueueBenchmark.mpmc("ConcurrentLinkedDeque (first->last)", () -> deque(new ConcurrentLinkedDeque<>())));
+    }
+
+    static QueueBenchmark.Channel blocking(BlockingQueue<Integer> queue) {
+        return new QueueBenchmark.Channel() {
+            @Override
+            public void put(int value) throws InterruptedException {
+                queue.put(value);
+            }
+
+            @Override
+            public int take() throws InterruptedException {
+                return queue.take();
+            }
+        };
+    }
+
+    static QueueBenchmark.Channel polling(Queue<Integer> queue) {
+        return new QueueBenchmark.Channel() {
+            @Override
+            public void put(int value) {
+                // Unbounded queues always accept; bounded ones spin until a slot frees up
+                while (!queue.offer(value)) {
+                    Thread.onSpinWait();
+                }
+            }
+
+            @Override
+            public int take() {
+                Integer value;
+                while ((value = queue.poll()) == null) {
+                    Thread.onSpinWait();
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Adds at the head and removes at the tail, as ConcurrentLinkedDequeExample's
+     * addFirst/pollLast pair does.
+     */
+    static QueueBenchmark.Channel deque(ConcurrentLinkedDeque<Integer> deque) {
+        return new QueueBenchmark.Channel() {
+            @Override
+            public void put(int value) {
+                deque.addFirst(value);
+            }
+
+            @Override
+            public int take() {
+                Integer value;
+                while ((value = deque.pollLast()) == null) {
+                    Thread.onSpinWait();
+                }
+                return value;
+            }
+        };
+    }
+
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 240_000;
+        QueueBenchmark.run(subjects(), items, 3);
+    }
+}
@@ -0,0 +1,38 @@
+package Concurrent;
+
+import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Batched poll loop for non-blocking queues and deques, which have no drainTo():
+ * takes up to maxBatch elements in one call, so the caller makes one
+ * empty-or-not decision (and logs at most once) per batch instead of per element.
+ */
+public final class QueueDrain {
+
+    private QueueDrain() {
+    }
+
+    /**
+     * Polls the queue until it is empty or maxBatch elements were handed to the
+     * consumer; returns how many there were, 0 meaning the queue was empty.
+     */
+    public static <E> int drain(Queue<E> queue, Consumer<? super E> consumer, int maxBatch) {
+        return drain(queue::poll, consumer, maxBatch);
+    }
+
+    /**
+     * As above, for any poll that returns null when empty, such as
+     * Deque::pollFirst or Deque::pollLast.
+     */
+    public static <E> int drain(Supplier<? extends E> poller, Consumer<? super E> consumer, int maxBatch) {
+        int n = 0;
+        E e;
+        while (n < maxBatch && (e = poller.get()) != null) {
+            consumer.accept(e);
+            n++;
+        }
+        return n;
+    }
+}
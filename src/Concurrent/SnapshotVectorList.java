@@ -0,0 +1,300 @@
+package Concurrent;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe list for large, read-mostly tables (listeners, routes) that
+ * publishes a PersistentVector through an AtomicReference.
+ *
+ * Like CopyOnWriteArrayList, readers never lock and an iterator walks the version
+ * that was current when it was created. Unlike it, add() and set() do not copy
+ * the whole array: they build a new version that shares all but O(log32 n) small
+ * arrays with the old one and install it with a compareAndSet, retrying if
+ * another writer got in first.
+ *
+ * Removals and add(int, E) rebuild the vector once per call, so they cost O(n)
+ * like in CopyOnWriteArrayList; removing the last element is cheap. removeIf,
+ * removeAll and retainAll remove all their matches in that one rebuild, which
+ * makes removeIf the way to unregister listeners. Iterators are read-only: their
+ * remove(), set() and add() throw UnsupportedOperationException.
+ *
+ * Reads that look at more than one element (iterators, indexOf, contains,
+ * subList, streams) all work on a single version, so a concurrent writer can
+ * never make them mix two versions or index past the end.
+ */
+public class SnapshotVectorList<E> extends AbstractList<E> implements RandomAccess {
+
+    private final AtomicReference<PersistentVector<E>> current =
+            new AtomicReference<>(PersistentVector.empty());
+
+    /**
+     * The current version; it never changes, so it can be read at leisure.
+     */
+    public PersistentVector<E> snapshot() {
+        return current.get();
+    }
+
+    @Override
+    public E get(int index) {
+        return current.get().get(index);
+    }
+
+    @Override
+    public int size() {
+        return current.get().size();
+    }
+
+    @Override
+    public boolean add(E e) {
+        update(v -> v.plus(e));
+        return true;
+    }
+
+    /**
+     * Replaces an existing element; unlike PersistentVector.with, index == size()
+     * does not append.
+     */
+    @Override
+    public E set(int index, E e) {
+        PersistentVector<E> previous = update(v -> {
+            Objects.checkIndex(index, v.size());
+            return v.with(index, e);
+        });
+        return previous.get(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if (c.isEmpty()) {
+            return false;
+        }
+        update(v -> {
+            PersistentVector<E> result = v;
+            for (E e : c) {
+                result = result.plus(e);
+            }
+            return result;
+        });
+        return true;
+    }
+
+    /**
+     * Inserts at index, shifting the elements from index on; O(n).
+     */
+    @Override
+    public void add(int index, E e) {
+        update(v -> {
+            Objects.checkIndex(index, v.size() + 1);
+            PersistentVector<E> result = PersistentVector.empty();
+            for (int i = 0; i < index; i++) {
+                result = result.plus(v.get(i));
+            }
+            result = result.plus(e);
+            for (int i = index; i < v.size(); i++) {
+                result = result.plus(v.get(i));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Removes the element at index, shifting the ones after it; O(n).
+     */
+    @Override
+    public E remove(int index) {
+        PersistentVector<E> previous = update(v -> {
+            Objects.checkIndex(index, v.size());
+            PersistentVector<E> result = PersistentVector.empty();
+            for (int i = 0; i < v.size(); i++) {
+                if (i != index) {
+                    result = result.plus(v.get(i));
+                }
+            }
+            return result;
+        });
+        return previous.get(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean[] removed = new boolean[1];
+        update(v -> {
+            removed[0] = false;
+            PersistentVector<E> result = PersistentVector.empty();
+            for (E e : v) {
+                if (!removed[0] && Objects.equals(o, e)) {
+                    removed[0] = true;
+                } else {
+                    result = result.plus(e);
+                }
+            }
+            return removed[0] ? result : v;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Removes every matching element with one rebuild and one compareAndSet. The
+     * filter may be called more than once per element if another writer gets in
+     * first, so it should have no side effects.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        boolean[] removed = new boolean[1];
+        update(v -> {
+            removed[0] = false;
+            PersistentVector<E> result = PersistentVector.empty();
+            for (E e : v) {
+                if (filter.test(e)) {
+                    removed[0] = true;
+                } else {
+                    result = result.plus(e);
+                }
+            }
+            return removed[0] ? result : v;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e));
+    }
+
+    /**
+     * Removes and returns the last element in O(log32 n).
+     *
+     * @throws NoSuchElementException if the list is empty
+     */
+    @Override
+    public E removeLast() {
+        PersistentVector<E> previous = update(v -> {
+            if (v.size() == 0) {
+                throw new NoSuchElementException();
+            }
+            return v.minusLast();
+        });
+        return previous.get(previous.size() - 1);
+    }
+
+    @Override
+    public void clear() {
+        current.set(PersistentVector.empty());
+    }
+
+    /**
+     * Iterates over the version current at the time of the call; never throws
+     * ConcurrentModificationException and does not support remove(): use
+     * removeIf() instead.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return current.get().iterator();
+    }
+
+    /**
+     * Walks the version current at the time of the call; read-only.
+     */
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return view().listIterator(index);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return view().contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return view().indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return view().lastIndexOf(o);
+    }
+
+    @Override
+    public E getFirst() {
+        return view().getFirst();
+    }
+
+    @Override
+    public E getLast() {
+        return view().getLast();
+    }
+
+    /**
+     * Read-only range of the version current at the time of the call; later
+     * writes do not show up in it.
+     */
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return view().subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return view().spliterator();
+    }
+
+    private List<E> view() {
+        return new VersionView<>(current.get());
+    }
+
+    // CAS loop; the function may run more than once and must not have side effects
+    // beyond its result. Returns the version that was replaced.
+    private PersistentVector<E> update(UnaryOperator<PersistentVector<E>> function) {
+        while (true) {
+            PersistentVector<E> previous = current.get();
+            PersistentVector<E> next = function.apply(previous);
+            if (previous == next || current.compareAndSet(previous, next)) {
+                return previous;
+            }
+        }
+    }
+
+    // Read-only List over one version; AbstractList supplies the rest
+    private static final class VersionView<E> extends AbstractList<E> implements RandomAccess {
+        private final PersistentVector<E> version;
+
+        VersionView(PersistentVector<E> version) {
+            this.version = version;
+        }
+
+        @Override
+        public E get(int index) {
+            return version.get(index);
+        }
+
+        @Override
+        public int size() {
+            return version.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return version.iterator();
+        }
+    }
+}
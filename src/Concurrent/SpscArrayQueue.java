@@ -0,0 +1,146 @@
+package Concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bounded, wait-free queue for exactly one producer thread and one consumer thread.
+ *
+ * With a single writer per index there is nothing to CAS: the producer is the only
+ * thread that moves the tail and the consumer the only one that moves the head.
+ * Each index lives on its own cache line and is published with lazySet (a release
+ * write), which is enough for the other side to see the element or the freed slot.
+ *
+ * Each side also keeps a cached copy of the opposite index on its own cache line.
+ * The producer only re-reads the consumer's head when the cached value says the
+ * queue looks full, and the consumer only re-reads the tail when it looks empty, so
+ * in steady state the two threads rarely touch each other's cache lines.
+ *
+ * offer() must only be called from the producer thread and poll()/peek() only from
+ * the consumer thread. The capacity is rounded up to a power of two. Null elements
+ * are not allowed.
+ */
+public final class SpscArrayQueue<E> extends AbstractQueue<E> {
+
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0L); // written by the producer only
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0L); // written by the consumer only
+    private final PaddedAtomicLong headCache = new PaddedAtomicLong(0L); // producer's view of head
+    private final PaddedAtomicLong tailCache = new PaddedAtomicLong(0L); // consumer's view of tail
+
+    private final Object[] elements;
+    private final int mask;
+
+    public SpscArrayQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Producer thread only. Returns false when the queue is full.
+     */
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long t = tail.getPlain();
+        if (t - headCache.getPlain() > mask) {
+            // Looks full: refresh the cached head from the consumer's index
+            headCache.setPlain(head.getAcquire());
+            if (t - headCache.getPlain() > mask) {
+                return false;
+            }
+        }
+        elements[(int) t & mask] = e;
+        tail.lazySet(t + 1); // publishes the element to the consumer
+        return true;
+    }
+
+    /**
+     * Consumer thread only. Returns null when the queue is empty.
+     */
+    @Override
+    public E poll() {
+        long h = head.getPlain();
+        if (h >= tailCache.getPlain()) {
+            // Looks empty: refresh the cached tail from the producer's index
+            tailCache.setPlain(tail.getAcquire());
+            if (h >= tailCache.getPlain()) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        @SuppressWarnings("unchecked")
+        E e = (E) elements[index];
+        elements[index] = null;
+        head.lazySet(h + 1); // hands the slot back to the producer
+        return e;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long h = head.getPlain();
+        if (h >= tail.getAcquire()) {
+            return null;
+        }
+        return (E) elements[(int) h & mask];
+    }
+
+    @Override
+    public int size() {
+        // Read head first: tail can only grow, so the difference never goes negative
+        long h = head.getAcquire();
+        long t = tail.getAcquire();
+        return (int) Math.max(0L, Math.min(t - h, (long) capacity()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.getAcquire() >= tail.getAcquire();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Weakly consistent snapshot; only exact when called from the consumer thread
+     * or while both sides are idle. Does not support remove().
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long t = tail.getAcquire();
+        for (long pos = head.getAcquire(); pos < t; pos++) {
+            @SuppressWarnings("unchecked")
+            E e = (E) elements[(int) pos & mask];
+            if (e != null) {
+                snapshot.add(e);
+            }
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+        };
+    }
+}
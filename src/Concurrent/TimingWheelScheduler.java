@@ -0,0 +1,326 @@
+package Concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts and delayed tasks, with
+ * O(1) schedule and cancel and a single ticker thread.
+ *
+ * A PriorityBlockingQueue or ScheduledThreadPoolExecutor keeps timeouts in a heap
+ * behind one lock: O(log n) per insert, and cancelling means either an O(log n)
+ * removal or leaving dead entries in the heap. Most timeouts are cancelled long
+ * before they fire (a request that completes cancels its timeout), so that work
+ * is mostly wasted.
+ *
+ * Here time is cut into ticks, and LEVELS wheels of 64 buckets each cover
+ * 64, 64^2, 64^3 and 64^4 ticks ahead (with 1 ms ticks, about 4.6 hours). A timeout
+ * goes into the bucket of the finest wheel that covers its deadline. When a
+ * finer wheel wraps around, the next bucket of the coarser wheel is "cascaded":
+ * its timeouts are redistributed into finer buckets. Each timeout is moved at
+ * most LEVELS times, whatever the number of timeouts.
+ *
+ * Only the ticker thread touches the buckets. schedule() and cancel() may be
+ * called from any thread: new timeouts and cancellations reach the ticker
+ * through lock-free queues, and a cancelled timeout is unlinked from its bucket
+ * in O(1). Expired tasks run on the ticker thread unless an Executor is given,
+ * so they should be short. Timeouts fire up to one tick late, never early.
+ */
+public final class TimingWheelScheduler implements AutoCloseable {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Executor executor; // null: run on the ticker thread
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+    private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final LongAdder pending = new LongAdder();
+    private final Thread ticker;
+    private volatile boolean closed;
+
+    private long currentTick; // ticker thread only: the last tick processed
+
+    /**
+     * A scheduled task; cancel() it when it is no longer needed.
+     */
+    public static final class Timeout {
+        private static final VarHandle STATE;
+
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final TimingWheelScheduler scheduler;
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile int state;
+
+        // Ticker thread only
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheelScheduler scheduler, Runnable task, long deadlineTick) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Returns false if the task already ran or was cancelled before.
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            scheduler.pending.decrement();
+            scheduler.cancelledTimeouts.offer(this); // the ticker unlinks it from its bucket
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private boolean expire() {
+            return STATE.compareAndSet(this, PENDING, EXPIRED);
+        }
+    }
+
+    /**
+     * Doubly-linked list of timeouts, owned by the ticker thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        // Detaches and returns the whole list
+        Timeout takeAll() {
+            Timeout first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    public TimingWheelScheduler() {
+        this(1, TimeUnit.MILLISECONDS, null);
+    }
+
+    /**
+     * @param tick     resolution of the wheel
+     * @param executor where expired tasks run, or null to run them on the ticker thread
+     */
+    public TimingWheelScheduler(long tick, TimeUnit unit, Executor executor) {
+        this.tickNanos = unit.toNanos(tick);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        this.executor = executor;
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, "TimingWheel-Ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Runs the task once after the delay. O(1): the timeout is queued for the
+     * ticker, which places it into its bucket on the next tick.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (closed) {
+            throw new IllegalStateException("scheduler is closed");
+        }
+        // Saturate like ScheduledThreadPoolExecutor.triggerTime: a huge delay means
+        // "never", not a deadline that wrapped around into the past
+        long now = System.nanoTime() - startNanos;
+        long delayNanos = unit.toNanos(Math.max(0L, delay));
+        long elapsed = delayNanos > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + delayNanos;
+        long deadlineTick = elapsed / tickNanos + (elapsed % tickNanos == 0 ? 0 : 1); // round up: never fire early
+        Timeout timeout = new Timeout(this, task, deadlineTick);
+        pending.increment();
+        newTimeouts.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Number of timeouts that have neither fired nor been cancelled.
+     */
+    public long pending() {
+        return pending.sum();
+    }
+
+    /**
+     * Stops the ticker; timeouts that have not fired yet are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runTicker() {
+        while (!closed) {
+            long tick = currentTick + 1;
+            long waitNanos = startNanos + tick * tickNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue; // re-check: parkNanos may return early
+            }
+            currentTick = tick;
+            transferNewTimeouts();
+            processCancellations();
+            cascade(tick);
+            expire(wheels[0][(int) (tick & WHEEL_MASK)].takeAll());
+        }
+    }
+
+    private void transferNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state == PENDING) {
+                place(timeout, currentTick);
+            }
+        }
+    }
+
+    private void processCancellations() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Puts the timeout into the finest wheel whose range, seen from tick 'now'
+     * (the tick being processed), covers its deadline. At level l the bucket index
+     * is bits [6l, 6l+6) of the deadline, and the level is right when the deadline
+     * agrees with 'now' in all higher bits. An overdue timeout lands in the level 0
+     * bucket of 'now', which expires right after the transfer and cascade.
+     */
+    private void place(Timeout timeout, long now) {
+        long deadline = Math.max(timeout.deadlineTick, now);
+        for (int level = 0; level < LEVELS; level++) {
+            int higher = WHEEL_BITS * (level + 1);
+            if ((deadline >>> higher) == (now >>> higher)) {
+                wheels[level][(int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(timeout);
+                return;
+            }
+        }
+        // Beyond the coarsest wheel: park it in the coarsest bucket that is cascaded
+        // next; it is placed again (possibly here again) when that happens
+        int top = WHEEL_BITS * (LEVELS - 1);
+        wheels[LEVELS - 1][(int) (((now >>> top) + 1) & WHEEL_MASK)].add(timeout);
+    }
+
+    // When the finer wheels wrap around, redistribute the coarser wheel's current
+    // bucket; coarsest first, so its timeouts can be cascaded further right away
+    private void cascade(long tick) {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            long lowBits = (1L << (WHEEL_BITS * level)) - 1;
+            if ((tick & lowBits) == 0) {
+                Bucket bucket = wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+                Timeout timeout = bucket.takeAll();
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.bucket = null;
+                    timeout.prev = null;
+                    timeout.next = null;
+                    place(timeout, tick);
+                    timeout = next;
+                }
+            }
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.expire()) {
+                pending.decrement();
+                run(timeout.task);
+            }
+            timeout = next;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            if (executor != null) {
+                executor.execute(task);
+            } else {
+                task.run();
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // a failing task must not stop the ticker
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package Concurrent;
+
+/**
+ * Chase-Lev work-stealing deque.
+ *
+ * One owner thread pushes and pops at the bottom, LIFO, like a call stack. Any
+ * number of thieves steal from the top, FIFO, so they take the oldest and usually
+ * largest pieces of work. The owner's push never uses a CAS and its pop uses one
+ * only for the very last element, when it may race with a thief. Thieves settle
+ * races among themselves with a CAS on top. ConcurrentLinkedDeque has no notion of
+ * an owner, so every operation at either end pays for a CAS and a node.
+ *
+ * The array grows (the owner copies it) when full, and never shrinks. A stolen
+ * slot is not cleared, because the owner may already have reused it; its stale
+ * reference is overwritten when the owner wraps around to it.
+ *
+ * push() and pop() must only be called from the owner thread; steal() may be
+ * called from any thread. Null elements are not allowed.
+ */
+public final class WorkStealingDeque<E> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final PaddedAtomicLong top = new PaddedAtomicLong(0L);    // thieves' end
+    private final PaddedAtomicLong bottom = new PaddedAtomicLong(0L); // owner's end
+
+    // Replaced by the owner on growth; thieves re-read it after reading bottom
+    private volatile Object[] array = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Owner only.
+     */
+    public void push(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long b = bottom.getPlain();
+        long t = top.getAcquire();
+        Object[] a = array;
+        if (b - t >= a.length) {
+            a = grow(a, t, b);
+        }
+        a[(int) b & (a.length - 1)] = e;
+        bottom.lazySet(b + 1); // publishes the element to thieves
+    }
+
+    /**
+     * Owner only. Returns the most recently pushed element, or null when empty.
+     */
+    public E pop() {
+        long b = bottom.getPlain() - 1;
+        Object[] a = array;
+        // Volatile write then volatile read: claims the slot before looking at
+        // top, so a thief and the owner cannot both take the last element
+        bottom.set(b);
+        long t = top.get();
+        if (t > b) {
+            bottom.lazySet(b + 1); // was empty, undo
+            return null;
+        }
+        int index = (int) b & (a.length - 1);
+        @SuppressWarnings("unchecked")
+        E e = (E) a[index];
+        if (t == b) {
+            // Last element: a thief may be after it as well
+            if (!top.compareAndSet(t, t + 1)) {
+                e = null;
+            } else {
+                a[index] = null;
+            }
+            bottom.lazySet(b + 1);
+            return e;
+        }
+        a[index] = null; // no thief can reach this slot while t < b
+        return e;
+    }
+
+    /**
+     * Any thread. Returns the oldest element, or null when the deque is empty or
+     * another thread got to it first; callers treat both as "try elsewhere".
+     */
+    public E steal() {
+        long t = top.get();
+        long b = bottom.get();
+        if (t >= b) {
+            return null;
+        }
+        Object[] a = array;
+        @SuppressWarnings("unchecked")
+        E e = (E) a[(int) t & (a.length - 1)];
+        if (e == null || !top.compareAndSet(t, t + 1)) {
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * Approximate when called concurrently with steals.
+     */
+    public int size() {
+        long b = bottom.get();
+        long t = top.get();
+        return (int) Math.max(0L, b - t);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private Object[] grow(Object[] old, long t, long b) {
+        Object[] bigger = new Object[old.length << 1];
+        for (long i = t; i < b; i++) {
+            bigger[(int) i & (bigger.length - 1)] = old[(int) i & (old.length - 1)];
+        }
+        array = bigger; // the old array keeps its contents for thieves still reading it
+        return bigger;
+    }
+}
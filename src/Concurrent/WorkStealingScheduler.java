@@ -0,0 +1,184 @@
+package Concurrent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Small fixed-size scheduler built on WorkStealingDeque, in the spirit of
+ * ForkJoinPool.
+ *
+ * Every worker owns a deque. A task submitted from a worker (a task spawning
+ * subtasks) is pushed onto that worker's own deque without a CAS, and the worker
+ * pops it back LIFO while it is still hot in the cache. Tasks submitted from
+ * outside go through a shared injection queue. A worker with nothing to do takes
+ * from the injection queue, then steals from the top of a randomly chosen victim,
+ * and finally parks.
+ *
+ * Parking is timed (IDLE_PARK_MICROS): execute() unparks one idle worker, and the
+ * timeout bounds the delay in the rare case that wakeup is missed.
+ */
+public final class WorkStealingScheduler implements Executor, AutoCloseable {
+
+    private static final long IDLE_PARK_MICROS = 500;
+    private static final int SPINS_BEFORE_PARK = 64;
+
+    private final Worker[] workers;
+    private final ConcurrentLinkedQueue<Runnable> injection = new ConcurrentLinkedQueue<>();
+    private final LongAdder steals = new LongAdder();
+    private volatile boolean shutdown;
+
+    public WorkStealingScheduler(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        Thread current = Thread.currentThread();
+        if (current instanceof WorkerThread && ((WorkerThread) current).owner() == this) {
+            // Owner-local fast path; still allowed while closing so running tasks can finish
+            ((WorkerThread) current).worker.deque.push(task);
+        } else if (shutdown) {
+            throw new IllegalStateException("scheduler is shut down");
+        } else {
+            injection.offer(task);
+        }
+        wakeOne();
+    }
+
+    public int parallelism() {
+        return workers.length;
+    }
+
+    /**
+     * Number of tasks a worker took from another worker's deque.
+     */
+    public long steals() {
+        return steals.sum();
+    }
+
+    /**
+     * Stops accepting tasks, lets the workers finish everything already queued and
+     * waits for them to exit.
+     */
+    @Override
+    public void close() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void wakeOne() {
+        for (Worker worker : workers) {
+            if (worker.idle) {
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    private Runnable findTask(Worker self) {
+        Runnable task = self.deque.pop();
+        if (task != null) {
+            return task;
+        }
+        task = injection.poll();
+        if (task != null) {
+            return task;
+        }
+        int n = workers.length;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            Worker victim = workers[(start + i) % n];
+            if (victim != self && (task = victim.deque.steal()) != null) {
+                steals.increment();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void runWorker(Worker self) {
+        int spins = 0;
+        while (true) {
+            Runnable task = findTask(self);
+            if (task != null) {
+                spins = 0;
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // a failing task must not kill the worker
+                }
+                continue;
+            }
+            if (shutdown) {
+                return; // nothing left anywhere
+            }
+            if (++spins < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+                continue;
+            }
+            self.idle = true;
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(IDLE_PARK_MICROS));
+            self.idle = false;
+            spins = 0;
+        }
+    }
+
+    private final class Worker {
+        final WorkStealingDeque<Runnable> deque = new WorkStealingDeque<>();
+        final WorkerThread thread;
+        volatile boolean idle;
+
+        Worker(int index) {
+            thread = new WorkerThread(this, "WorkStealing-Worker-" + index);
+        }
+
+        WorkStealingScheduler scheduler() {
+            return WorkStealingScheduler.this;
+        }
+    }
+
+    private static final class WorkerThread extends Thread {
+        final Worker worker;
+
+        WorkerThread(Worker worker, String name) {
+            super(name);
+            this.worker = worker;
+            setDaemon(true);
+        }
+
+        WorkStealingScheduler owner() {
+            return worker.scheduler();
+        }
+
+        @Override
+        public void run() {
+            worker.scheduler().runWorker(worker);
+        }
+    }
+}
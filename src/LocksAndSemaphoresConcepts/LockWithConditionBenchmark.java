@@ -0,0 +1,33 @@
+package LocksAndSemaphoresConcepts;
+
+import java.util.List;
+
+import benchmark.QueueBenchmark;
+
+/**
+ * Exposes LockWithConditionExample as a benchmark.QueueBenchmark subject.
+ *
+ * The example shares one Condition between producers and consumers and wakes
+ * with signal(), so with several producers or consumers a signal can wake a
+ * thread of the wrong kind and every thread ends up waiting. It is therefore
+ * only measured with one producer and one consumer.
+ */
+public class LockWithConditionBenchmark {
+
+    public static List<QueueBenchmark.Subject> subjects() {
+        return List.of(QueueBenchmark.spsc("LockWithConditionExample (1 slot)", () -> {
+            LockWithConditionExample example = new LockWithConditionExample(false);
+            return new QueueBenchmark.Channel() {
+                @Override
+                public void put(int value) {
+                    example.produce(value);
+                }
+
+                @Override
+                public int take() {
+                    return example.consume();
+                }
+            };
+        }));
+    }
+}
@@ -13,6 +13,18 @@ class LockWithConditionExample {
     private final Condition condition = lock.newCondition();
     private boolean readyToConsume = false;
     private int sharedData = 0;
+    private final boolean verbose;
+
+    public LockWithConditionExample() {
+        this(true);
+    }
+
+    /**
+     * @param verbose false turns off the progress messages, e.g. for benchmarks
+     */
+    public LockWithConditionExample(boolean verbose) {
+        this.verbose = verbose;
+    }
 
     /**
      * Producer method that writes data and signals the consumer.
@@ -21,12 +33,16 @@ class LockWithConditionExample {
         lock.lock(); // Acquire the lock
         try {
             while (readyToConsume) {
-                System.out.println(Thread.currentThread().getName() + " - Waiting for consumer to consume.");
+                if (verbose) {
+                    System.out.println(Thread.currentThread().getName() + " - Waiting for consumer to consume.");
+                }
                 condition.await(); // Wait until the data is consumed
             }
             sharedData = value;
             readyToConsume = true;
-            System.out.println(Thread.currentThread().getName() + " - Produced data: " + value);
+            if (verbose) {
+                System.out.println(Thread.currentThread().getName() + " - Produced data: " + value);
+            }
             condition.signal(); // Signal the consumer
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -38,20 +54,28 @@ class LockWithConditionExample {
 
     /**
      * Consumer method that reads data produced by the producer.
+     *
+     * @return the consumed value, or -1 if the thread was interrupted while waiting
      */
-    public void consume() {
+    public int consume() {
         lock.lock(); // Acquire the lock
         try {
             while (!readyToConsume) {
-                System.out.println(Thread.currentThread().getName() + " - Waiting for producer to produce.");
+                if (verbose) {
+                    System.out.println(Thread.currentThread().getName() + " - Waiting for producer to produce.");
+                }
                 condition.await(); // Wait until data is produced
             }
-            System.out.println(Thread.currentThread().getName() + " - Consumed data: " + sharedData);
+            if (verbose) {
+                System.out.println(Thread.currentThread().getName() + " - Consumed data: " + sharedData);
+            }
             readyToConsume = false;
             condition.signal(); // Signal the producer
+            return sharedData;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.out.println(Thread.currentThread().getName() + " - Interrupted during consumption.");
+            return -1;
         } finally {
             lock.unlock(); // Release the lock
         }
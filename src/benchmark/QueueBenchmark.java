@@ -0,0 +1,196 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Small throughput/latency harness for every queue and buffer in the project.
+ *
+ * The project has no build tool, so instead of a JMH module this is a plain main()
+ * that follows the same recipe: a fresh queue per run, warm-up rounds that are
+ * discarded, several measured rounds, and producers/consumers released together
+ * by a start latch. Each value carries the index of a timestamp taken just before
+ * put(), so the consumer can record the enqueue-to-dequeue latency of every item.
+ *
+ * Usage: QueueBenchmark [itemsPerRound [measuredRounds]]
+ */
+public final class QueueBenchmark {
+
+    private static final int[][] THREAD_CONFIGS = {{1, 1}, {4, 1}, {4, 4}};
+
+    /**
+     * Minimal blocking int channel that every benchmarked queue is adapted to.
+     */
+    public interface Channel {
+        void put(int value) throws InterruptedException;
+
+        int take() throws InterruptedException;
+    }
+
+    /**
+     * A named queue under test. Single-producer or single-consumer structures are
+     * skipped for thread configurations they do not support.
+     */
+    public static final class Subject {
+        final String name;
+        final Supplier<Channel> factory;
+        final boolean singleProducer;
+        final boolean singleConsumer;
+
+        private Subject(String name, Supplier<Channel> factory, boolean singleProducer, boolean singleConsumer) {
+            this.name = name;
+            this.factory = factory;
+            this.singleProducer = singleProducer;
+            this.singleConsumer = singleConsumer;
+        }
+
+        boolean supports(int producers, int consumers) {
+            return !(singleProducer && producers > 1) && !(singleConsumer && consumers > 1);
+        }
+    }
+
+    public static Subject mpmc(String name, Supplier<Channel> factory) {
+        return new Subject(name, factory, false, false);
+    }
+
+    public static Subject spsc(String name, Supplier<Channel> factory) {
+        return new Subject(name, factory, true, true);
+    }
+
+    /**
+     * Result of one subject in one thread configuration.
+     */
+    static final class Result {
+        final double opsPerSecond;
+        final long p50;
+        final long p99;
+        final long p999;
+
+        Result(double opsPerSecond, long[] latencies) {
+            this.opsPerSecond = opsPerSecond;
+            Arrays.sort(latencies);
+            this.p50 = percentile(latencies, 0.50);
+            this.p99 = percentile(latencies, 0.99);
+            this.p999 = percentile(latencies, 0.999);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0L;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 240_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        List<Subject> subjects = new ArrayList<>();
+        subjects.addAll(synchronization.waitnotify.BufferBenchmark.subjects());
+        subjects.addAll(LocksAndSemaphoresConcepts.LockWithConditionBenchmark.subjects());
+        subjects.addAll(Concurrent.QueueBenchmarks.subjects());
+
+        run(subjects, items, rounds);
+    }
+
+    /**
+     * Runs every subject in every supported thread configuration and prints one
+     * line per combination.
+     */
+    public static void run(List<Subject> subjects, int items, int rounds) {
+        System.out.printf("%d items per round, %d warm-up + %d measured rounds, %d CPUs%n",
+                items, 1, rounds, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-36s %-5s %14s %10s %10s %10s%n", "queue", "P/C", "ops/s", "p50 us", "p99 us", "p99.9 us");
+        for (int[] config : THREAD_CONFIGS) {
+            int producers = config[0];
+            int consumers = config[1];
+            for (Subject subject : subjects) {
+                if (!subject.supports(producers, consumers)) {
+                    continue;
+                }
+                Result result = measure(subject, producers, consumers, items, rounds);
+                System.out.printf("%-36s %-5s %,14.0f %10.1f %10.1f %10.1f%n",
+                        subject.name, producers + "/" + consumers, result.opsPerSecond,
+                        result.p50 / 1e3, result.p99 / 1e3, result.p999 / 1e3);
+            }
+        }
+    }
+
+    static Result measure(Subject subject, int producers, int consumers, int items, int rounds) {
+        // Round the item count so it splits evenly across both sides
+        int unit = producers * consumers;
+        int total = Math.max(unit, items / unit * unit);
+
+        runRound(subject, producers, consumers, total, null); // warm-up, discarded
+        long[] latencies = new long[total * rounds];
+        long elapsedNanos = 0L;
+        for (int round = 0; round < rounds; round++) {
+            long[] roundLatencies = new long[total];
+            elapsedNanos += runRound(subject, producers, consumers, total, roundLatencies);
+            System.arraycopy(roundLatencies, 0, latencies, round * total, total);
+        }
+        return new Result((double) total * rounds * 1e9 / elapsedNanos, latencies);
+    }
+
+    // Returns the wall-clock time from releasing the threads until the last value was taken
+    private static long runRound(Subject subject, int producers, int consumers, int total, long[] latencies) {
+        Channel channel = subject.factory.get();
+        long[] enqueuedAt = new long[total];
+        long[] dequeueLatency = latencies != null ? latencies : new long[total];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+        int perProducer = total / producers;
+        int perConsumer = total / consumers;
+
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            startThread("producer-" + p, start, done, () -> {
+                for (int id = first; id < first + perProducer; id++) {
+                    enqueuedAt[id] = System.nanoTime(); // published to the consumer by put()
+                    channel.put(id);
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            startThread("consumer-" + c, start, done, () -> {
+                for (int i = 0; i < perConsumer; i++) {
+                    int id = channel.take();
+                    dequeueLatency[id] = System.nanoTime() - enqueuedAt[id];
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private interface Body {
+        void run() throws InterruptedException;
+    }
+
+    private static void startThread(String name, CountDownLatch start, CountDownLatch done, Body body) {
+        Thread thread = new Thread(() -> {
+            try {
+                start.await();
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,54 @@
+package synchronization.waitnotify;
+
+import java.util.concurrent.TimeUnit;
+
+//Common contract for the buffers that Producer and Consumer exchange data through
+interface Buffer {
+
+	// Adds a value, blocking while the buffer is full
+	void produce(int value);
+
+	// Removes and returns the oldest value, blocking while the buffer is empty
+	int consume();
+
+	// Adds values[off..off+len), blocking whenever the buffer is full.
+	// Implementations override this to move many items per lock acquisition.
+	default void produceAll(int[] values, int off, int len) {
+		checkRange(values, off, len);
+		for (int i = off; i < off + len; i++) {
+			produce(values[i]);
+		}
+	}
+
+	// Blocks until at least one value is available, then moves up to 'max'
+	// values into dst (drainTo-style). Returns the number of values copied.
+	default int consume(int[] dst, int max) {
+		if (max <= 0 || dst.length == 0) {
+			return 0;
+		}
+		dst[0] = consume();
+		return 1;
+	}
+
+	// Like consume(int[], int), but after the first value arrives keeps waiting up
+	// to 'linger' for more, so it returns as soon as 'max' values are available or
+	// the linger time is up (Nagle-style batching). Under load this yields full
+	// batches; under light load a value waits at most 'linger' before delivery.
+	// Buffers that cannot linger fall back to consume(int[], int).
+	default int consume(int[] dst, int max, long linger, TimeUnit unit) {
+		return consume(dst, max);
+	}
+
+	// Timed variant of consume(int[], int): returns 0 if no value arrived within
+	// the timeout, so a consumer that may be told to stop (a cancelled
+	// subscription, a pool shutting down) gets to check in between. Like the
+	// other methods it keeps waiting when interrupted and restores the flag.
+	int poll(int[] dst, int max, long timeout, TimeUnit unit);
+
+	static void checkRange(int[] values, int off, int len) {
+		if (off < 0 || len < 0 || len > values.length - off) { // no off + len: it can overflow
+			throw new IndexOutOfBoundsException(
+					"off=" + off + ", len=" + len + ", length=" + values.length);
+		}
+	}
+}
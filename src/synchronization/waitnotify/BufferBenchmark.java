@@ -0,0 +1,42 @@
+package synchronization.waitnotify;
+
+import java.util.List;
+
+import benchmark.QueueBenchmark;
+
+//Buffers of this package as benchmark.QueueBenchmark subjects, all in quiet mode.
+//Run benchmark.QueueBenchmark for the full comparison, or this class for the
+//buffers alone.
+public class BufferBenchmark {
+	private static final int CAPACITY = 1024;
+
+	public static List<QueueBenchmark.Subject> subjects() {
+		return List.of(
+				QueueBenchmark.mpmc("SharedBuffer (1 slot)", () -> adapt(new SharedBuffer(false))),
+				QueueBenchmark.mpmc("RingBuffer", () -> adapt(new RingBuffer(CAPACITY, false))),
+				QueueBenchmark.spsc("SequenceRingBuffer (blocking)",
+						() -> adapt(new SequenceRingBuffer(CAPACITY, new WaitStrategy.Blocking(), false))),
+				QueueBenchmark.spsc("SequenceRingBuffer (yielding)",
+						() -> adapt(new SequenceRingBuffer(CAPACITY, new WaitStrategy.Yielding(), false))),
+				QueueBenchmark.mpmc("ShardedBuffer (4 shards)", () -> adapt(new ShardedBuffer(4, CAPACITY / 4, false))));
+	}
+
+	private static QueueBenchmark.Channel adapt(Buffer buffer) {
+		return new QueueBenchmark.Channel() {
+			@Override
+			public void put(int value) {
+				buffer.produce(value);
+			}
+
+			@Override
+			public int take() {
+				return buffer.consume();
+			}
+		};
+	}
+
+	public static void main(String[] args) {
+		int items = args.length > 0 ? Integer.parseInt(args[0]) : 240_000;
+		QueueBenchmark.run(subjects(), items, 3);
+	}
+}
@@ -0,0 +1,129 @@
+package synchronization.waitnotify;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Exposes any Buffer as a java.util.concurrent.Flow.Publisher<Integer>.
+//Instead of a dedicated Consumer thread per reader, every Flow.Subscriber pulls
+//values with request(n): a delivery task is only scheduled on the executor while
+//the subscriber has outstanding demand, and it takes values in batches of up to
+//min(demand, batchSize) with Buffer.consume(int[], int). With no demand no thread
+//is held at all, so a slow subscriber applies backpressure all the way to the
+//producers (the buffer fills up and produce() blocks).
+//
+//Several subscribers compete for the values like several Consumers would; each
+//value goes to exactly one subscriber. The buffer has no end-of-stream marker,
+//so the stream never completes on its own: a subscriber stops with cancel().
+//A delivery task waits in Buffer.poll() while the buffer is empty, which is cheap
+//on a virtual-thread executor because none of the buffers pin their carrier.
+//It waits at most CANCEL_CHECK_MILLIS at a time and re-checks for cancel() in
+//between, so a cancelled subscription frees its thread even if no value ever
+//arrives. It never takes more values than the subscriber requested, and delivers
+//every value it took, even if cancel() came in meanwhile (Reactive Streams rule
+//2.8); nothing is ever written back into the buffer, which may only have one
+//producer. If onNext() throws, the rest of that batch is dropped along with the
+//subscriber (rule 2.13). All signals, onError included, come from the delivery
+//task, so they never overlap (rule 1.3).
+class BufferPublisher implements Flow.Publisher<Integer> {
+	private static final long CANCEL_CHECK_MILLIS = 50L;
+
+	private final Buffer buffer;
+	private final Executor executor;
+	private final int batchSize;
+
+	public BufferPublisher(Buffer buffer, Executor executor, int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		this.buffer = Objects.requireNonNull(buffer, "buffer");
+		this.executor = Objects.requireNonNull(executor, "executor");
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		BufferSubscription subscription = new BufferSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+	}
+
+	// One per subscriber. 'demand' counts requested but undelivered values and
+	// 'wip' makes sure at most one delivery task per subscriber runs at a time.
+	private final class BufferSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super Integer> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private final int[] batch = new int[batchSize]; // only used by the delivery task
+		private volatile boolean cancelled;
+		private volatile Throwable error; // set by request(), signalled by the delivery task
+
+		BufferSubscription(Flow.Subscriber<? super Integer> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (cancelled) {
+				return;
+			}
+			if (n <= 0) {
+				// Rule 3.9: signal onError, but from the delivery task (rule 1.3)
+				error = new IllegalArgumentException("request must be positive: " + n);
+			} else {
+				// Add to the outstanding demand, saturating at Long.MAX_VALUE (unbounded)
+				demand.getAndAccumulate(n, (current, add) -> {
+					long sum = current + add;
+					return sum < 0 ? Long.MAX_VALUE : sum;
+				});
+			}
+			if (wip.getAndIncrement() == 0) {
+				executor.execute(this::drain);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+
+		// Delivers values while there is demand. request() calls that arrive while
+		// this runs only bump 'wip', so the loop re-checks instead of scheduling a
+		// second task.
+		private void drain() {
+			int missed = 1;
+			boolean finished = false;
+			try {
+				do {
+					long requested;
+					while (!cancelled && error == null && (requested = demand.get()) > 0) {
+						int taken = buffer.poll(batch, (int) Math.min(requested, batchSize),
+								CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+						if (demand.get() != Long.MAX_VALUE) {
+							demand.addAndGet(-taken);
+						}
+						// Requested values, so they are delivered even if cancel() came in meanwhile
+						for (int i = 0; i < taken; i++) {
+							subscriber.onNext(batch[i]);
+						}
+					}
+					Throwable e = error;
+					if (e != null && !cancelled) {
+						cancelled = true;
+						subscriber.onError(e);
+					}
+					missed = wip.addAndGet(-missed);
+				} while (missed != 0);
+				finished = true;
+			} finally {
+				if (!finished) {
+					cancelled = true; // rule 2.13: a subscriber that throws is cancelled
+					wip.set(0);
+				}
+			}
+		}
+	}
+}
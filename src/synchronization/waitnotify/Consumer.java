@@ -1,22 +1,78 @@
 package synchronization.waitnotify;
 
+import java.util.concurrent.TimeUnit;
+
 //Consumer thread that processes data
 class Consumer implements Runnable {
-	private SharedBuffer buffer;
+	private Buffer buffer;
+	private int batchSize;
+	private int items;
+	private long delayMillis;
+	private long lingerMillis;
+
+	public Consumer(Buffer buffer) {
+		this(buffer, 1);
+	}
+
+	// batchSize > 1 drains up to batchSize values per call to consume(int[], int)
+	public Consumer(Buffer buffer, int batchSize) {
+		this(buffer, batchSize, 5);
+	}
+
+	// items is the total number of values this thread consumes
+	public Consumer(Buffer buffer, int batchSize, int items) {
+		this(buffer, batchSize, items, 1500L);
+	}
+
+	// delayMillis is the simulated processing time after each call; 0 disables it
+	public Consumer(Buffer buffer, int batchSize, int items, long delayMillis) {
+		this(buffer, batchSize, items, delayMillis, 0L);
+	}
 
-	public Consumer(SharedBuffer buffer) {
+	// lingerMillis > 0 waits up to that long for a full batch before waking up,
+	// trading latency for larger batches (needs batchSize > 1)
+	public Consumer(Buffer buffer, int batchSize, int items, long delayMillis, long lingerMillis) {
 		this.buffer = buffer;
+		this.batchSize = batchSize;
+		this.items = items;
+		this.delayMillis = delayMillis;
+		this.lingerMillis = lingerMillis;
 	}
 
 	@Override
 	public void run() {
-		for (int i = 1; i <= 5; i++) {
+		if (batchSize > 1) {
+			runBatched();
+			return;
+		}
+		for (int i = 1; i <= items; i++) {
 			buffer.consume();
-			try {
-				Thread.sleep(1500); // Simulate some processing time
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
+			simulateWork();
+		}
+	}
+
+	private void runBatched() {
+		int[] batch = new int[batchSize];
+		int consumed = 0;
+		while (consumed < items) {
+			int max = Math.min(batchSize, items - consumed);
+			if (lingerMillis > 0) {
+				consumed += buffer.consume(batch, max, lingerMillis, TimeUnit.MILLISECONDS);
+			} else {
+				consumed += buffer.consume(batch, max);
 			}
+			simulateWork();
+		}
+	}
+
+	private void simulateWork() {
+		if (delayMillis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(delayMillis); // Simulate some processing time
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 }
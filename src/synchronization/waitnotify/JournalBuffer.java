@@ -0,0 +1,468 @@
+package synchronization.waitnotify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Persistent Buffer: produced values are appended to a journal of fixed-size,
+//memory-mapped segment files, and the consumers' read position is stored next
+//to it, so a restarted process continues exactly where the last one stopped.
+//
+//Durability uses group commit. produce() only writes into the mapping; a
+//background flusher forces the new records to disk once 'syncEvery' records
+//are pending or 'syncIntervalMillis' has passed, so one fsync covers many
+//produce() calls. Consumers only see records that are already on disk, which
+//guarantees that the stored read position never runs ahead of the stored data.
+//The read position is persisted with the next group commit, so after a crash
+//the last few values may be delivered again (at-least-once).
+//
+//If a group commit fails (the disk is full, the file system went away), the
+//journal stops: produce(), consume() and sync() throw IllegalStateException
+//instead of waiting for data that will never become durable. After close(),
+//consumers get the remaining durable values and then IllegalStateException.
+//
+//Files in the journal directory:
+//  journal.meta             int magic, int segmentEntries, long durable, long committed
+//  segment-<first seq>.log  segmentEntries int records
+class JournalBuffer implements Buffer, AutoCloseable {
+	private static final int MAGIC = 0x4A524E31; // "JRN1"
+	private static final int META_SIZE = 24;
+	private static final int META_SEGMENT_ENTRIES = 4;
+	private static final int META_DURABLE = 8;
+	private static final int META_COMMITTED = 16;
+
+	private final Path directory;
+	private final int segmentEntries;
+	private final int syncEvery;
+	private final long syncIntervalNanos;
+	private final boolean verbose;
+
+	private final FileChannel metaChannel;
+	private final MappedByteBuffer meta;
+
+	// Guarded by lock
+	private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>(); // keyed by first sequence
+	private long written; // next sequence a producer writes
+	private long durable; // records below this are on disk and visible to consumers
+	private long committed; // next sequence a consumer reads
+	private boolean syncRequested;
+	private boolean closed;
+	private boolean stopped; // the flusher has finished its last group commit
+	private Throwable failure; // why the flusher died, if it did
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition syncNeeded = lock.newCondition();
+
+	private final Thread flusher;
+
+	public JournalBuffer(Path directory) throws IOException {
+		this(directory, 64 * 1024, 1024, 10L, true);
+	}
+
+	// Opens the journal in 'directory', creating it if needed. segmentEntries must
+	// match the value used when the journal was created.
+	public JournalBuffer(Path directory, int segmentEntries, int syncEvery, long syncIntervalMillis,
+			boolean verbose) throws IOException {
+		if (segmentEntries <= 0 || segmentEntries > Integer.MAX_VALUE / Integer.BYTES) {
+			throw new IllegalArgumentException("segmentEntries out of range: " + segmentEntries);
+		}
+		if (syncEvery <= 0 || syncIntervalMillis <= 0) {
+			throw new IllegalArgumentException("syncEvery and syncIntervalMillis must be positive");
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentEntries = segmentEntries;
+		this.syncEvery = syncEvery;
+		this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+		this.verbose = verbose;
+
+		Path metaFile = directory.resolve("journal.meta");
+		this.metaChannel = FileChannel.open(metaFile,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		boolean fresh = metaChannel.size() == 0;
+		this.meta = metaChannel.map(FileChannel.MapMode.READ_WRITE, 0, META_SIZE);
+		meta.order(ByteOrder.nativeOrder());
+		if (fresh) {
+			meta.putInt(META_SEGMENT_ENTRIES, segmentEntries);
+			meta.putLong(META_DURABLE, 0L);
+			meta.putLong(META_COMMITTED, 0L);
+			meta.putInt(0, MAGIC);
+			meta.force();
+		} else if (meta.getInt(0) != MAGIC) {
+			metaChannel.close();
+			throw new IOException(metaFile + " is not a journal meta file");
+		} else if (meta.getInt(META_SEGMENT_ENTRIES) != segmentEntries) {
+			metaChannel.close();
+			throw new IOException(metaFile + " uses " + meta.getInt(META_SEGMENT_ENTRIES)
+					+ " entries per segment, expected " + segmentEntries);
+		}
+
+		// Recovery: anything after the last group commit was never acknowledged
+		// as durable and is simply overwritten
+		this.durable = meta.getLong(META_DURABLE);
+		this.written = durable;
+		this.committed = meta.getLong(META_COMMITTED);
+		if (verbose && !fresh) {
+			System.out.println("Recovered journal: " + (durable - committed) + " unconsumed values");
+		}
+		try {
+			deleteConsumedSegmentFiles();
+		} catch (IOException e) {
+			metaChannel.close();
+			throw e;
+		}
+
+		this.flusher = new Thread(this::runFlusher, "Journal-Flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	// Method used by producer to add data; never blocks, the journal is unbounded
+	@Override
+	public void produce(int value) {
+		lock.lock();
+		try {
+			ensureOpen();
+			append(value);
+			if (verbose) {
+				System.out.println("Produced: " + value + " (seq " + (written - 1) + ")");
+			}
+			if (written - durable >= syncEvery) {
+				syncNeeded.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Appends the whole batch under one lock acquisition
+	@Override
+	public void produceAll(int[] values, int off, int len) {
+		Buffer.checkRange(values, off, len);
+		lock.lock();
+		try {
+			ensureOpen();
+			for (int i = off; i < off + len; i++) {
+				append(values[i]);
+			}
+			if (verbose) {
+				System.out.println("Produced batch of " + len + " (up to seq " + (written - 1) + ")");
+			}
+			if (written - durable >= syncEvery) {
+				syncNeeded.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Method used by consumer to retrieve data; waits for a durable record
+	@Override
+	public int consume() {
+		lock.lock();
+		try {
+			awaitDurable();
+			int value = read(committed++);
+			if (verbose) {
+				System.out.println("Consumed: " + value + " (seq " + (committed - 1) + ")");
+			}
+			return value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int consume(int[] dst, int max) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		lock.lock();
+		try {
+			awaitDurable();
+			int n = (int) Math.min(limit, durable - committed);
+			for (int i = 0; i < n; i++) {
+				dst[i] = read(committed++);
+			}
+			if (verbose) {
+				System.out.println("Consumed batch of " + n + " (up to seq " + (committed - 1) + ")");
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Timed batch consume: waits up to the timeout for a durable record and
+	// returns 0 if none became durable in time
+	@Override
+	public int poll(int[] dst, int max, long timeout, TimeUnit unit) {
+		if (Math.min(max, dst.length) <= 0) {
+			return 0;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean interrupted = false;
+		lock.lock();
+		try {
+			while (committed == durable) {
+				checkReadable();
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L) {
+					return 0;
+				}
+				try {
+					notEmpty.awaitNanos(remaining);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			return consume(dst, max); // Reentrant, and durable data is there: does not wait
+		} finally {
+			lock.unlock();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Forces everything written so far to disk and waits for it
+	public void sync() {
+		lock.lock();
+		try {
+			long target = written;
+			while (durable < target && !closed) {
+				if (failure != null) {
+					throw new IllegalStateException("Journal flusher failed", failure);
+				}
+				syncRequested = true;
+				syncNeeded.signal();
+				notEmpty.awaitUninterruptibly();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Performs a final group commit and stops the flusher
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			syncNeeded.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		lock.lock();
+		try {
+			stopped = true;
+			notEmpty.signalAll(); // consumers waiting for data that will never come
+		} finally {
+			lock.unlock();
+		}
+		metaChannel.close();
+	}
+
+	// Background group commit loop
+	private void runFlusher() {
+		while (true) {
+			long target;
+			long committedSnapshot;
+			List<MappedByteBuffer> dirty = new ArrayList<>();
+			boolean stop;
+			lock.lock();
+			try {
+				long deadline = System.nanoTime() + syncIntervalNanos;
+				while (!closed && !syncRequested && written - durable < syncEvery) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0L) {
+						if (written > durable || committed != meta.getLong(META_COMMITTED)) {
+							break;
+						}
+						deadline = System.nanoTime() + syncIntervalNanos;
+						remaining = syncIntervalNanos;
+					}
+					try {
+						syncNeeded.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						fail(e);
+						return;
+					}
+				}
+				stop = closed;
+				syncRequested = false;
+				target = written;
+				committedSnapshot = committed;
+				if (target > durable) {
+					dirty.addAll(segments.subMap(segmentStart(durable), true, segmentStart(target - 1), true).values());
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			// The slow part runs without the lock, so producers keep appending
+			try {
+				for (MappedByteBuffer segment : dirty) {
+					segment.force();
+				}
+				meta.putLong(META_DURABLE, target);
+				meta.putLong(META_COMMITTED, committedSnapshot);
+				meta.force();
+			} catch (RuntimeException | Error e) { // force() reports I/O errors as UncheckedIOException
+				fail(e);
+				return;
+			}
+
+			lock.lock();
+			try {
+				if (target > durable) {
+					durable = target;
+					notEmpty.signalAll(); // once per group commit, not once per record
+				}
+				deleteConsumedSegments(committedSnapshot);
+			} finally {
+				lock.unlock();
+			}
+			if (stop) {
+				return;
+			}
+		}
+	}
+
+	// Called by the flusher as it dies: wake everybody who waits for it
+	private void fail(Throwable cause) {
+		lock.lock();
+		try {
+			failure = cause;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		System.out.println("Journal flusher failed: " + cause);
+	}
+
+	// Caller holds the lock
+	private void append(int value) {
+		long seq = written;
+		segment(seq).putInt(offset(seq), value);
+		written = seq + 1;
+	}
+
+	// Caller holds the lock
+	private int read(long seq) {
+		return segment(seq).getInt(offset(seq));
+	}
+
+	// Caller holds the lock
+	private void awaitDurable() {
+		while (committed == durable) {
+			checkReadable();
+			if (verbose) {
+				System.out.println("Consumer waiting for durable data...");
+			}
+			notEmpty.awaitUninterruptibly();
+		}
+	}
+
+	// Caller holds the lock; nothing durable is left to read. Fails if no more will come.
+	private void checkReadable() {
+		if (failure != null) {
+			throw new IllegalStateException("Journal flusher failed", failure);
+		}
+		if (stopped) {
+			throw new IllegalStateException("Journal is closed");
+		}
+	}
+
+	// Caller holds the lock; maps the segment containing seq, creating the file if needed
+	private MappedByteBuffer segment(long seq) {
+		long start = segmentStart(seq);
+		MappedByteBuffer segment = segments.get(start);
+		if (segment == null) {
+			try (FileChannel channel = FileChannel.open(segmentFile(start),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentEntries * Integer.BYTES);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			segment.order(ByteOrder.nativeOrder());
+			segments.put(start, segment);
+		}
+		return segment;
+	}
+
+	// Caller holds the lock; removes segments whose records have all been consumed
+	// and persisted as consumed
+	private void deleteConsumedSegments(long committedSnapshot) {
+		while (!segments.isEmpty() && segments.firstKey() + segmentEntries <= committedSnapshot) {
+			long start = segments.pollFirstEntry().getKey();
+			try {
+				Files.deleteIfExists(segmentFile(start));
+			} catch (IOException e) {
+				System.out.println("Could not delete journal segment " + start + ": " + e.getMessage());
+			}
+		}
+	}
+
+	// On open: segments consumed before the last run ended but not deleted yet
+	// (the process stopped between the commit and the delete) are not mapped
+	// here, so deleteConsumedSegments would never see them
+	private void deleteConsumedSegmentFiles() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.log")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				long start;
+				try {
+					start = Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+				} catch (NumberFormatException e) {
+					continue; // not one of ours
+				}
+				if (start + segmentEntries <= committed) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	private Path segmentFile(long start) {
+		return directory.resolve(String.format("segment-%020d.log", start));
+	}
+
+	private long segmentStart(long seq) {
+		return seq - seq % segmentEntries;
+	}
+
+	private int offset(long seq) {
+		return (int) (seq % segmentEntries) * Integer.BYTES;
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		if (failure != null) {
+			throw new IllegalStateException("Journal flusher failed", failure);
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package synchronization.waitnotify;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//Buffer that lives in a memory-mapped file, so the Producer and the Consumer can
+//run in two different JVMs on the same host (e.g. with the file in /dev/shm).
+//Like SequenceRingBuffer it supports exactly one producer and one consumer: the
+//producer owns the tail index, the consumer owns the head index, and both are
+//accessed with release/acquire VarHandle operations directly in the mapping, so
+//values travel between processes without copies, sockets or system calls.
+//
+//File layout (native byte order):
+//  [0]   int magic, int capacity
+//  [64]  long tail  - next slot the producer writes, on its own cache line
+//  [128] long head  - next slot the consumer reads, on its own cache line
+//  [192] int[capacity] slots
+//
+//A monitor cannot be shared between processes, so a side that has to wait spins,
+//then yields, then parks for short intervals until the other side moves.
+class MappedBuffer implements Buffer {
+	private static final int MAGIC = 0x5342_4631; // "SBF1"
+	private static final int MAGIC_OFFSET = 0;
+	private static final int CAPACITY_OFFSET = 4;
+	private static final int TAIL_OFFSET = 64;
+	private static final int HEAD_OFFSET = 128;
+	private static final int DATA_OFFSET = 192;
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = 50_000L;
+
+	private static final VarHandle LONGS =
+			MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private final MappedByteBuffer mapping;
+	private final IntBuffer slots;
+	private final int capacity;
+	private final boolean verbose;
+
+	// Each side caches the other side's index and re-reads it only when it may have to wait
+	private long cachedHead; // producer process only
+	private long cachedTail; // consumer process only
+
+	public MappedBuffer(Path path, int capacity) throws IOException {
+		this(path, capacity, true);
+	}
+
+	// Creates the file and initializes its header if it does not exist yet, or
+	// attaches to an existing one whose capacity must match. The FileLock resource is
+	// only held for the duration of its block and never referenced, hence "try".
+	@SuppressWarnings("try")
+	public MappedBuffer(Path path, int capacity, boolean verbose) throws IOException {
+		if (capacity <= 0 || capacity > (Integer.MAX_VALUE - DATA_OFFSET) / Integer.BYTES) {
+			throw new IllegalArgumentException("capacity out of range: " + capacity);
+		}
+		long size = DATA_OFFSET + (long) capacity * Integer.BYTES;
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// The file lock makes "check header, then initialize" atomic across processes
+			try (FileLock lock = channel.lock()) {
+				boolean fresh = channel.size() == 0;
+				this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				this.mapping.order(ByteOrder.nativeOrder());
+				if (fresh) {
+					mapping.putInt(CAPACITY_OFFSET, capacity);
+					LONGS.setRelease(mapping, TAIL_OFFSET, 0L);
+					LONGS.setRelease(mapping, HEAD_OFFSET, 0L);
+					mapping.putInt(MAGIC_OFFSET, MAGIC);
+				} else if (mapping.getInt(MAGIC_OFFSET) != MAGIC) {
+					throw new IOException(path + " is not a MappedBuffer file");
+				} else if (mapping.getInt(CAPACITY_OFFSET) != capacity) {
+					throw new IOException(path + " has capacity " + mapping.getInt(CAPACITY_OFFSET)
+							+ ", expected " + capacity);
+				}
+			}
+		}
+		// The mapping stays valid after the channel is closed
+		this.slots = mapping.slice(DATA_OFFSET, capacity * Integer.BYTES)
+				.order(ByteOrder.nativeOrder()).asIntBuffer();
+		this.capacity = capacity;
+		this.verbose = verbose;
+		this.cachedHead = (long) LONGS.getAcquire(mapping, HEAD_OFFSET);
+		this.cachedTail = (long) LONGS.getAcquire(mapping, TAIL_OFFSET);
+	}
+
+	// Method used by producer to add data
+	@Override
+	public void produce(int value) {
+		long tail = (long) LONGS.get(mapping, TAIL_OFFSET);
+		awaitFreeSlots(tail);
+
+		slots.put((int) (tail % capacity), value);
+		if (verbose) {
+			System.out.println("Produced: " + value);
+		}
+		LONGS.setRelease(mapping, TAIL_OFFSET, tail + 1); // publishes the slot
+	}
+
+	// Method used by consumer to retrieve data
+	@Override
+	public int consume() {
+		long head = (long) LONGS.get(mapping, HEAD_OFFSET);
+		awaitPublished(head);
+
+		int value = slots.get((int) (head % capacity));
+		if (verbose) {
+			System.out.println("Consumed: " + value);
+		}
+		LONGS.setRelease(mapping, HEAD_OFFSET, head + 1); // hands the slot back
+		return value;
+	}
+
+	// Writes as many values as there are free slots with bulk puts, then
+	// publishes them with a single tail update
+	@Override
+	public void produceAll(int[] values, int off, int len) {
+		Buffer.checkRange(values, off, len);
+		int end = off + len;
+		while (off < end) {
+			long tail = (long) LONGS.get(mapping, TAIL_OFFSET);
+			awaitFreeSlots(tail);
+			cachedHead = (long) LONGS.getAcquire(mapping, HEAD_OFFSET);
+
+			int n = (int) Math.min(end - off, capacity - (tail - cachedHead));
+			int index = (int) (tail % capacity);
+			int first = Math.min(n, capacity - index);
+			slots.put(index, values, off, first);
+			slots.put(0, values, off + first, n - first);
+			if (verbose) {
+				System.out.println("Produced batch of " + n);
+			}
+			LONGS.setRelease(mapping, TAIL_OFFSET, tail + n);
+			off += n;
+		}
+	}
+
+	// Waits for at least one value, then bulk-reads everything published so far
+	// (up to max) and releases it with a single head update
+	@Override
+	public int consume(int[] dst, int max) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		long head = (long) LONGS.get(mapping, HEAD_OFFSET);
+		awaitPublished(head);
+		cachedTail = (long) LONGS.getAcquire(mapping, TAIL_OFFSET);
+
+		int n = (int) Math.min(limit, cachedTail - head);
+		int index = (int) (head % capacity);
+		int first = Math.min(n, capacity - index);
+		slots.get(index, dst, 0, first);
+		slots.get(0, dst, first, n - first);
+		if (verbose) {
+			System.out.println("Consumed batch of " + n);
+		}
+		LONGS.setRelease(mapping, HEAD_OFFSET, head + n);
+		return n;
+	}
+
+	// Timed batch consume: the same spin/yield/park loop as consume(int[], int),
+	// but it gives up and returns 0 once the timeout has passed
+	@Override
+	public int poll(int[] dst, int max, long timeout, TimeUnit unit) {
+		if (Math.min(max, dst.length) <= 0) {
+			return 0;
+		}
+		long head = (long) LONGS.get(mapping, HEAD_OFFSET);
+		if (cachedTail <= head) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			int counter = SPIN_TRIES + YIELD_TRIES;
+			while ((cachedTail = (long) LONGS.getAcquire(mapping, TAIL_OFFSET)) <= head) {
+				if (deadline - System.nanoTime() <= 0L) {
+					return 0;
+				}
+				counter = idle(counter);
+			}
+		}
+		return consume(dst, max); // published already: does not wait
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	// Producer side: waits until the consumer has freed the slot at tail
+	private void awaitFreeSlots(long tail) {
+		if (tail - cachedHead < capacity) {
+			return;
+		}
+		cachedHead = (long) LONGS.getAcquire(mapping, HEAD_OFFSET);
+		if (tail - cachedHead < capacity) {
+			return;
+		}
+		if (verbose) {
+			System.out.println("Producer waiting as buffer is full...");
+		}
+		int counter = SPIN_TRIES + YIELD_TRIES;
+		while (tail - (cachedHead = (long) LONGS.getAcquire(mapping, HEAD_OFFSET)) >= capacity) {
+			counter = idle(counter);
+		}
+	}
+
+	// Consumer side: waits until the producer has published the slot at head
+	private void awaitPublished(long head) {
+		if (cachedTail > head) {
+			return;
+		}
+		cachedTail = (long) LONGS.getAcquire(mapping, TAIL_OFFSET);
+		if (cachedTail > head) {
+			return;
+		}
+		if (verbose) {
+			System.out.println("Consumer waiting as buffer is empty...");
+		}
+		int counter = SPIN_TRIES + YIELD_TRIES;
+		while ((cachedTail = (long) LONGS.getAcquire(mapping, TAIL_OFFSET)) <= head) {
+			counter = idle(counter);
+		}
+	}
+
+	// Spin, then yield, then park; returns the updated retry counter
+	private static int idle(int counter) {
+		if (counter > YIELD_TRIES) {
+			Thread.onSpinWait();
+			return counter - 1;
+		}
+		if (counter > 0) {
+			Thread.yield();
+			return counter - 1;
+		}
+		LockSupport.parkNanos(PARK_NANOS);
+		return counter;
+	}
+}
@@ -2,21 +2,66 @@ package synchronization.waitnotify;
 
 //Producer thread that generates data
 class Producer implements Runnable {
-	private SharedBuffer buffer;
+	private Buffer buffer;
+	private int batchSize;
+	private int items;
+	private long delayMillis;
 
-	public Producer(SharedBuffer buffer) {
+	public Producer(Buffer buffer) {
+		this(buffer, 1);
+	}
+
+	// batchSize > 1 hands values over with produceAll() instead of one by one
+	public Producer(Buffer buffer, int batchSize) {
+		this(buffer, batchSize, 5);
+	}
+
+	// items is the total number of values this thread produces
+	public Producer(Buffer buffer, int batchSize, int items) {
+		this(buffer, batchSize, items, 1000L);
+	}
+
+	// delayMillis is the simulated processing time after each call; 0 disables it
+	public Producer(Buffer buffer, int batchSize, int items, long delayMillis) {
 		this.buffer = buffer;
+		this.batchSize = batchSize;
+		this.items = items;
+		this.delayMillis = delayMillis;
 	}
 
 	@Override
 	public void run() {
-		for (int i = 1; i <= 5; i++) {
+		if (batchSize > 1) {
+			runBatched();
+			return;
+		}
+		for (int i = 1; i <= items; i++) {
 			buffer.produce(i);
-			try {
-				Thread.sleep(1000); // Simulate some processing time
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
+			simulateWork();
+		}
+	}
+
+	private void runBatched() {
+		int[] batch = new int[batchSize];
+		int next = 1;
+		while (next <= items) {
+			int n = 0;
+			while (n < batchSize && next <= items) {
+				batch[n++] = next++;
 			}
+			buffer.produceAll(batch, 0, n);
+			simulateWork();
+		}
+	}
+
+	private void simulateWork() {
+		if (delayMillis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(delayMillis); // Simulate some processing time
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 }
@@ -1,18 +1,214 @@
 package synchronization.waitnotify;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
 //Main class to demonstrate the producer-consumer pattern
+//Usage: ProducerConsumerDemo [ring|sequence <capacity> [batchSize [waitStrategy]]]
+//       waitStrategy (sequence only): blocking | sleeping | yielding | busy-spin
+//       ProducerConsumerDemo sharded <shards> [producers [consumers]]
+//       ProducerConsumerDemo mapped <file> [producer|consumer]
+//       ProducerConsumerDemo journal <directory> [producer|consumer]
+//       ProducerConsumerDemo threads <pairs> [platform|virtual|both]
+//       ProducerConsumerDemo flow
+//       ProducerConsumerDemo linger <batchSize> <lingerMillis>
 public class ProducerConsumerDemo {
 	public static void main(String[] args) {
-		SharedBuffer buffer = new SharedBuffer();
+		if (args.length > 0 && args[0].equals("sharded")) {
+			runSharded(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("mapped")) {
+			runMapped(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("journal")) {
+			runJournal(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("linger")) {
+			int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+			long lingerMillis = args.length > 2 ? Long.parseLong(args[2]) : 100L;
+			System.out.println("Using ring buffer with consumer batches of up to " + batchSize
+					+ " and " + lingerMillis + " ms linger");
+			RingBuffer buffer = new RingBuffer(64);
+			// A steady trickle of values: the consumer wakes up once per batch or linger period
+			new Thread(new Producer(buffer, 1, 40, 20L), "Producer").start();
+			new Thread(new Consumer(buffer, batchSize, 40, 0L, lingerMillis), "Consumer").start();
+			return;
+		}
+		if (args.length > 0 && args[0].equals("flow")) {
+			runFlow();
+			return;
+		}
+		if (args.length > 0 && args[0].equals("threads")) {
+			int pairs = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+			ThreadModeComparison.run(pairs, args.length > 2 ? args[2] : "both");
+			return;
+		}
+
+		Buffer buffer = createBuffer(args);
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 1;
 
 		// Create producer and consumer threads
-		Thread producerThread = new Thread(new Producer(buffer), "Producer");
-		Thread consumerThread = new Thread(new Consumer(buffer), "Consumer");
+		Thread producerThread = new Thread(new Producer(buffer, batchSize), "Producer");
+		Thread consumerThread = new Thread(new Consumer(buffer, batchSize), "Consumer");
 
 		// Start both threads
 		producerThread.start();
 		consumerThread.start();
 	}
+
+	// Runs several producers and consumers against one ShardedBuffer. Each
+	// producer makes 5 values per consumer and each consumer takes 5 values per
+	// producer, so the totals always match.
+	private static void runSharded(String[] args) {
+		int shards = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int producers = args.length > 2 ? Integer.parseInt(args[2]) : shards;
+		int consumers = args.length > 3 ? Integer.parseInt(args[3]) : shards;
+		System.out.println("Using sharded buffer with " + shards + " shards, " + producers
+				+ " producers and " + consumers + " consumers");
+		ShardedBuffer buffer = new ShardedBuffer(shards, 4);
+
+		Thread[] threads = new Thread[producers + consumers];
+		for (int i = 0; i < producers; i++) {
+			threads[i] = new Thread(new Producer(buffer, 1, 5 * consumers), "Producer-" + i);
+		}
+		for (int i = 0; i < consumers; i++) {
+			threads[producers + i] = new Thread(new Consumer(buffer, 1, 5 * producers), "Consumer-" + i);
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		System.out.println("Done, consumers stole from other shards " + buffer.steals() + " times");
+	}
+
+	// Exchanges values through a memory-mapped file. Start one JVM with
+	// 'producer' and another with 'consumer' on the same file (for example
+	// /dev/shm/buffer) to run them as separate processes, or omit the role to run
+	// both sides in this JVM.
+	private static void runMapped(String[] args) {
+		Path file = Paths.get(args.length > 1 ? args[1] : "/dev/shm/producer-consumer.buf");
+		String role = args.length > 2 ? args[2] : "both";
+		MappedBuffer buffer;
+		try {
+			buffer = new MappedBuffer(file, 4);
+		} catch (IOException e) {
+			System.out.println("Could not map " + file + ": " + e.getMessage());
+			return;
+		}
+		System.out.println("Using mapped buffer at " + file + " as " + role);
+
+		if (!role.equals("consumer")) {
+			new Thread(new Producer(buffer), "Producer").start();
+		}
+		if (!role.equals("producer")) {
+			new Thread(new Consumer(buffer), "Consumer").start();
+		}
+	}
+
+	// Runs against a durable JournalBuffer. Values that were produced but not
+	// consumed before the process stopped are consumed first on the next run, e.g.
+	// run 'journal /tmp/journal producer' and then 'journal /tmp/journal consumer'.
+	private static void runJournal(String[] args) {
+		Path directory = Paths.get(args.length > 1 ? args[1] : "producer-consumer-journal");
+		String role = args.length > 2 ? args[2] : "both";
+		try (JournalBuffer buffer = new JournalBuffer(directory, 1024, 16, 10L, true)) {
+			System.out.println("Using journal at " + directory + " as " + role);
+
+			List<Thread> threads = new ArrayList<>();
+			if (!role.equals("consumer")) {
+				threads.add(new Thread(new Producer(buffer), "Producer"));
+			}
+			if (!role.equals("producer")) {
+				threads.add(new Thread(new Consumer(buffer), "Consumer"));
+			}
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (IOException e) {
+			System.out.println("Journal error: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Reads the buffer through a Flow.Subscriber that asks for two values at a
+	// time, instead of running a Consumer thread
+	private static void runFlow() {
+		RingBuffer buffer = new RingBuffer(4);
+		new Thread(new Producer(buffer, 1, 10, 200L), "Producer").start();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			new BufferPublisher(buffer, executor, 2).subscribe(new Flow.Subscriber<Integer>() {
+				private Flow.Subscription subscription;
+				private int received;
+
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					this.subscription = subscription;
+					subscription.request(2);
+				}
+
+				@Override
+				public void onNext(Integer item) {
+					received++;
+					System.out.println("Subscriber received: " + item);
+					if (received == 10) {
+						subscription.cancel();
+					} else if (received % 2 == 0) {
+						System.out.println("Subscriber requesting 2 more");
+						subscription.request(2);
+					}
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+					System.out.println("Subscriber failed: " + throwable);
+				}
+
+				@Override
+				public void onComplete() {
+					System.out.println("Subscriber completed");
+				}
+			});
+		} // close() waits until the delivery task has finished
+	}
+
+	// Picks the buffer implementation from the command line arguments
+	private static Buffer createBuffer(String[] args) {
+		if (args.length > 0 && args[0].equals("ring")) {
+			int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+			System.out.println("Using ring buffer with capacity " + capacity);
+			return new RingBuffer(capacity);
+		}
+		if (args.length > 0 && args[0].equals("sequence")) {
+			int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+			String strategy = args.length > 3 ? args[3] : "blocking";
+			System.out.println("Using sequence ring buffer with capacity " + capacity
+					+ " and " + strategy + " wait strategy");
+			return new SequenceRingBuffer(capacity, WaitStrategy.of(strategy));
+		}
+		// Default: single-slot buffer coordinated with a ReentrantLock and two Conditions
+		return new SharedBuffer();
+	}
 }
 
 
@@ -70,4 +266,76 @@ while (!condition) {
 Q: How do wait() and notify() affect thread scheduling?
 A: notify() moves a waiting thread to the runnable state. However, thread scheduling 
    is handled by the OS and JVM, so the notified thread may not run immediately.
+
+Q: Why does RingBuffer use two Conditions instead of wait()/notifyAll()?
+A: An object monitor has a single wait set shared by producers and consumers, so notify()
+   may wake a thread of the wrong kind and notifyAll() is needed to stay safe. With separate
+   notFull and notEmpty conditions, signal() wakes exactly one thread that can make progress.
+
+Q: Why does a multi-slot buffer improve throughput?
+A: With one slot every item costs a full producer/consumer handoff. With N slots the producer
+   keeps filling while the consumer drains, and threads only block when the buffer is
+   completely full or completely empty.
+
+Q: Why move items in batches (produceAll / consume(int[], int))?
+A: Every lock acquisition, wait-loop check and signal has a fixed cost. Moving many
+   items per acquisition pays that cost once per batch instead of once per item,
+   which is the same idea behind BlockingQueue.drainTo().
+
+Q: How does SequenceRingBuffer coordinate without a lock?
+A: Each side owns one counter and only reads the other side's. The producer writes the slot
+   and then publishes its sequence with a release store; the consumer reads the sequence with
+   an acquire load, which guarantees it sees the slot contents. The counters are padded onto
+   separate cache lines so the two cores do not invalidate each other's line (false sharing).
+
+Q: Which wait strategy should be used?
+A: busy-spin gives the lowest latency but burns a full core per waiting thread; blocking parks
+   the thread and uses almost no CPU but costs a lock and a wake-up per hand-off. yielding and
+   sleeping sit in between.
+
+Q: How can many producers and consumers share a buffer without one global lock?
+A: Split it into shards that each have their own lock (ShardedBuffer). Every thread
+   works against its own home shard, so threads on different shards never contend.
+   A consumer whose shard is empty steals from the other shards (work stealing),
+   which keeps all consumers busy even when producers are unevenly loaded. The price
+   is that ordering is only guaranteed per shard, not globally.
+
+Q: Can wait()/notify() coordinate threads in two different JVMs?
+A: No, a monitor only exists inside one JVM. MappedBuffer shares the data through a
+   memory-mapped file instead: both processes map the same pages, the indices are
+   written with release stores and read with acquire loads, and a side that has to
+   wait polls (spin, yield, then short parks) because there is no cross-process notify.
+
+Q: How can a persistent queue be durable without an fsync per item?
+A: Group commit. JournalBuffer appends to memory-mapped segment files and a single
+   flusher thread forces them to disk every N records or T milliseconds, so one
+   fsync covers many produce() calls. Consumers only see records that are already
+   durable, and their read position is persisted with the same commit, so a restart
+   resumes from the last commit (values consumed after it may be delivered again).
+
+Q: Why does SharedBuffer use a ReentrantLock instead of synchronized/wait()/notify()?
+A: On JDK 21 a virtual thread that blocks inside synchronized or in Object.wait()
+   pins its carrier (platform) thread, so a few blocked virtual threads can starve all
+   the others. Condition.await() unmounts the virtual thread instead, and the carrier is
+   free to run other virtual threads. The protocol (check in a loop, wait, signal) is
+   exactly the same as with wait()/notify().
+
+Q: When do virtual threads beat platform threads?
+A: When there are many more concurrent tasks than cores and they spend most of their time
+   blocked (I/O, sleeps, waiting on a buffer). Each platform thread needs an OS thread and a
+   native stack, while virtual threads are cheap heap objects multiplexed onto a few carriers.
+   Run 'ProducerConsumerDemo threads 5000' to compare both on the same workload.
+
+Q: How does Flow (Reactive Streams) backpressure differ from a blocking consumer?
+A: A Flow.Subscriber states how many items it can take with request(n); the publisher
+   never sends more than that. BufferPublisher only schedules a delivery task while a
+   subscriber has outstanding demand, so no thread is parked per consumer, and a slow
+   subscriber simply stops requesting, which lets the buffer fill up and blocks producers.
+
+Q: What does a linger time do for a consumer?
+A: Like Nagle's algorithm or Kafka's linger.ms, the consumer does not wake up for every
+   value: after the first value arrives it waits until a full batch is buffered or the
+   linger time has passed. Under heavy load batches fill immediately (high throughput);
+   under light load no value waits longer than the linger time (bounded latency).
+   Raising the linger time increases batch size and tail latency at the same time.
 */
\ No newline at end of file
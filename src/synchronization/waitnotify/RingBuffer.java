@@ -0,0 +1,334 @@
+package synchronization.waitnotify;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Bounded multi-slot variant of SharedBuffer backed by a circular array.
+//Producers only wait when all slots are taken and consumers only wait when
+//every slot is empty, so both sides run decoupled up to 'capacity' items.
+class RingBuffer implements Buffer {
+	private final int[] items;
+	private int head; // next slot to consume from
+	private int tail; // next slot to produce into
+	private int count;
+
+	private final boolean verbose;
+
+	// One lock, but two separate wait queues: producers park on notFull,
+	// consumers park on notEmpty. A signal() therefore always wakes a thread
+	// of the right kind, so notifyAll() is never needed.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition notEmpty = lock.newCondition();
+
+	// Lingering consumers (see consume(int[], int, long, TimeUnit)) wait here for
+	// a full batch. Producers only signal it once 'lingerTarget' values are
+	// buffered, so a lingering consumer is not woken up for every single value.
+	private final Condition batchReady = lock.newCondition();
+	private int lingering; // number of consumers waiting on batchReady
+	private int lingerTarget; // smallest batch any of them is waiting for
+
+	public RingBuffer(int capacity) {
+		this(capacity, true);
+	}
+
+	public RingBuffer(int capacity, boolean verbose) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.items = new int[capacity];
+		this.verbose = verbose;
+	}
+
+	// Method used by producer to add data
+	@Override
+	public void produce(int value) {
+		lock.lock();
+		try {
+			// While every slot holds unprocessed data, wait
+			while (count == items.length) {
+				if (verbose) {
+					System.out.println("Producer waiting as buffer is full...");
+				}
+				notFull.awaitUninterruptibly();
+			}
+
+			items[tail] = value;
+			tail = next(tail);
+			count++;
+			if (verbose) {
+				System.out.println("Produced: " + value + " (" + count + "/" + items.length + ")");
+			}
+
+			// Only a consumer can be waiting on notEmpty
+			notEmpty.signal();
+			signalBatchReady();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Method used by consumer to retrieve data
+	@Override
+	public int consume() {
+		lock.lock();
+		try {
+			// While there is no data to process, wait
+			while (count == 0) {
+				if (verbose) {
+					System.out.println("Consumer waiting as buffer is empty...");
+				}
+				notEmpty.awaitUninterruptibly();
+			}
+
+			int value = items[head];
+			head = next(head);
+			count--;
+			if (verbose) {
+				System.out.println("Consumed: " + value + " (" + count + "/" + items.length + ")");
+			}
+
+			// Only a producer can be waiting on notFull
+			notFull.signal();
+			return value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Batch variant for the producer: copies as many values as there are free
+	// slots per lock acquisition instead of locking once per value
+	@Override
+	public void produceAll(int[] values, int off, int len) {
+		Buffer.checkRange(values, off, len);
+		int end = off + len;
+		lock.lock();
+		try {
+			while (off < end) {
+				while (count == items.length) {
+					if (verbose) {
+						System.out.println("Producer waiting as buffer is full...");
+					}
+					notFull.awaitUninterruptibly();
+				}
+
+				int n = Math.min(end - off, items.length - count);
+				copyIn(values, off, n);
+				if (verbose) {
+					System.out.println("Produced batch of " + n + " (" + count + "/" + items.length + ")");
+				}
+				off += n;
+
+				// One wakeup per new value, so batch and single consumers alike
+				// get a chance at the data
+				signal(notEmpty, n);
+				signalBatchReady();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Batch variant for the consumer: waits for at least one value, then drains
+	// up to 'max' values in one go
+	@Override
+	public int consume(int[] dst, int max) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		lock.lock();
+		try {
+			while (count == 0) {
+				if (verbose) {
+					System.out.println("Consumer waiting as buffer is empty...");
+				}
+				notEmpty.awaitUninterruptibly();
+			}
+
+			int n = Math.min(limit, count);
+			copyOut(dst, n);
+			if (verbose) {
+				System.out.println("Consumed batch of " + n + " (" + count + "/" + items.length + ")");
+			}
+
+			// One wakeup per freed slot
+			signal(notFull, n);
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Non-blocking variant of consume(int[], int): moves whatever is available
+	// right now (up to max) and returns 0 instead of waiting when empty
+	public int drainTo(int[] dst, int max) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		lock.lock();
+		try {
+			int n = Math.min(limit, count);
+			if (n > 0) {
+				copyOut(dst, n);
+				if (verbose) {
+					System.out.println("Drained batch of " + n + " (" + count + "/" + items.length + ")");
+				}
+				signal(notFull, n);
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Timed variant of consume(int[], int): returns 0 if nothing arrived within
+	// the timeout. Like the other methods it keeps waiting when interrupted and
+	// restores the interrupt flag on the way out.
+	@Override
+	public int poll(int[] dst, int max, long timeout, TimeUnit unit) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean interrupted = false;
+		lock.lock();
+		try {
+			while (count == 0) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L) {
+					return 0;
+				}
+				try {
+					notEmpty.awaitNanos(remaining);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+
+			int n = Math.min(limit, count);
+			copyOut(dst, n);
+			if (verbose) {
+				System.out.println("Consumed batch of " + n + " (" + count + "/" + items.length + ")");
+			}
+			signal(notFull, n);
+			return n;
+		} finally {
+			lock.unlock();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Lingering batch consume: waits for the first value like consume(int[], int),
+	// then keeps the lock released for up to 'linger' while more values arrive,
+	// and returns as soon as 'max' values (or a full buffer) are available
+	@Override
+	public int consume(int[] dst, int max, long linger, TimeUnit unit) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		// Waiting for more than the buffer can hold would always run into the timeout
+		int target = Math.min(limit, items.length);
+		boolean interrupted = false;
+		lock.lock();
+		try {
+			while (true) {
+				while (count == 0) {
+					if (verbose) {
+						System.out.println("Consumer waiting as buffer is empty...");
+					}
+					notEmpty.awaitUninterruptibly();
+				}
+
+				if (count < target) {
+					long deadline = System.nanoTime() + unit.toNanos(linger);
+					lingering++;
+					lingerTarget = lingering == 1 ? target : Math.min(lingerTarget, target);
+					try {
+						long remaining;
+						while (count < target && (remaining = deadline - System.nanoTime()) > 0L) {
+							try {
+								batchReady.awaitNanos(remaining);
+							} catch (InterruptedException e) {
+								interrupted = true;
+							}
+						}
+					} finally {
+						lingering--;
+					}
+				}
+
+				// Another consumer may have emptied the buffer while we lingered
+				int n = Math.min(limit, count);
+				if (n > 0) {
+					copyOut(dst, n);
+					if (verbose) {
+						System.out.println("Consumed batch of " + n + " (" + count + "/" + items.length + ")");
+					}
+					signal(notFull, n);
+					return n;
+				}
+			}
+		} finally {
+			lock.unlock();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public int capacity() {
+		return items.length;
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Copies n values into the ring starting at tail; at most two arraycopy calls
+	private void copyIn(int[] src, int off, int n) {
+		int first = Math.min(n, items.length - tail);
+		System.arraycopy(src, off, items, tail, first);
+		System.arraycopy(src, off + first, items, 0, n - first);
+		tail = (tail + n) % items.length;
+		count += n;
+	}
+
+	// Copies n values out of the ring starting at head; at most two arraycopy calls
+	private void copyOut(int[] dst, int n) {
+		int first = Math.min(n, items.length - head);
+		System.arraycopy(items, head, dst, 0, first);
+		System.arraycopy(items, 0, dst, first, n - first);
+		head = (head + n) % items.length;
+		count -= n;
+	}
+
+	// Caller holds the lock; wakes lingering consumers once their batch is complete
+	private void signalBatchReady() {
+		if (lingering > 0 && count >= lingerTarget) {
+			batchReady.signalAll();
+		}
+	}
+
+	// Wakes up to n waiters; signal() is a no-op once the wait queue is empty
+	private static void signal(Condition condition, int n) {
+		for (int i = 0; i < n; i++) {
+			condition.signal();
+		}
+	}
+
+	private int next(int index) {
+		return (index + 1 == items.length) ? 0 : index + 1;
+	}
+}
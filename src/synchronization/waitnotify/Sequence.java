@@ -0,0 +1,53 @@
+package synchronization.waitnotify;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+//Padding placed before the counter. Fields of a superclass are laid out before
+//those of a subclass, so the hierarchy keeps 'value' on its own cache line and
+//stops the producer and consumer counters from false sharing.
+abstract class SequenceLeftPadding {
+	protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequenceLeftPadding {
+	protected volatile long value;
+}
+
+abstract class SequenceRightPadding extends SequenceValue {
+	protected long p9, p10, p11, p12, p13, p14, p15;
+}
+
+//Cache-line padded long counter used by SequenceRingBuffer to track the last
+//published (producer) and last consumed (consumer) slot
+final class Sequence extends SequenceRightPadding {
+	private static final VarHandle VALUE;
+
+	static {
+		try {
+			VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	Sequence(long initialValue) {
+		VALUE.setRelease(this, initialValue);
+	}
+
+	// Acquire read: everything written before the matching setRelease() is visible
+	long get() {
+		return (long) VALUE.getAcquire(this);
+	}
+
+	// Plain read, only safe from the thread that owns (writes) this sequence
+	long getPlain() {
+		return (long) VALUE.get(this);
+	}
+
+	// Release write: publishes all earlier writes (e.g. slot contents) together
+	// with the new value, without the full fence of a volatile store
+	void setRelease(long newValue) {
+		VALUE.setRelease(this, newValue);
+	}
+}
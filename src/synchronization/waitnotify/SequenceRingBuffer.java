@@ -0,0 +1,179 @@
+package synchronization.waitnotify;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//Disruptor-style alternative to SharedBuffer and RingBuffer for exactly one
+//Producer and one Consumer thread. Instead of a monitor, each side owns a
+//padded Sequence: the producer publishes the last slot it wrote, the consumer
+//publishes the last slot it read, and each side only ever reads the other's
+//sequence. The slots are preallocated once, so nothing is allocated per item.
+class SequenceRingBuffer implements Buffer {
+	// How long poll() parks between looks at the cursor
+	private static final long POLL_PARK_NANOS = 50_000L;
+
+	private final int[] entries;
+	private final int mask;
+	private final WaitStrategy waitStrategy;
+	private final boolean verbose;
+
+	// Last slot published by the producer / last slot read by the consumer
+	private final Sequence cursor = new Sequence(-1L);
+	private final Sequence consumed = new Sequence(-1L);
+
+	// Each side caches the last value it saw of the other side's sequence, so
+	// it only touches the shared cache line when it may actually have to wait
+	private long cachedConsumed = -1L; // producer thread only
+	private long cachedCursor = -1L; // consumer thread only
+
+	public SequenceRingBuffer(int capacity, WaitStrategy waitStrategy) {
+		this(capacity, waitStrategy, true);
+	}
+
+	// capacity is rounded up to a power of two so a slot index is a mask, not a modulo
+	public SequenceRingBuffer(int capacity, WaitStrategy waitStrategy, boolean verbose) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("capacity out of range: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.entries = new int[size];
+		this.mask = size - 1;
+		this.waitStrategy = waitStrategy;
+		this.verbose = verbose;
+	}
+
+	// Method used by producer to add data
+	@Override
+	public void produce(int value) {
+		long next = cursor.getPlain() + 1;
+		awaitFreeSlots(next);
+
+		entries[(int) next & mask] = value;
+		if (verbose) {
+			System.out.println("Produced: " + value);
+		}
+		cursor.setRelease(next); // publishes the slot together with the sequence
+		waitStrategy.signalAll();
+	}
+
+	// Method used by consumer to retrieve data
+	@Override
+	public int consume() {
+		long next = consumed.getPlain() + 1;
+		awaitPublished(next);
+
+		int value = entries[(int) next & mask];
+		if (verbose) {
+			System.out.println("Consumed: " + value);
+		}
+		consumed.setRelease(next); // hands the slot back to the producer
+		waitStrategy.signalAll();
+		return value;
+	}
+
+	// Claims as many free slots as possible per round and publishes them with a
+	// single sequence update
+	@Override
+	public void produceAll(int[] values, int off, int len) {
+		Buffer.checkRange(values, off, len);
+		int end = off + len;
+		while (off < end) {
+			long first = cursor.getPlain() + 1;
+			awaitFreeSlots(first);
+			cachedConsumed = consumed.get(); // pick up anything freed meanwhile
+
+			long free = cachedConsumed + entries.length - first + 1;
+			int n = (int) Math.min(end - off, free);
+			for (int i = 0; i < n; i++) {
+				entries[(int) (first + i) & mask] = values[off + i];
+			}
+			if (verbose) {
+				System.out.println("Produced batch of " + n);
+			}
+			cursor.setRelease(first + n - 1);
+			waitStrategy.signalAll();
+			off += n;
+		}
+	}
+
+	// Waits for at least one published slot, then takes everything already
+	// published (up to max) and releases it with a single sequence update
+	@Override
+	public int consume(int[] dst, int max) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		long first = consumed.getPlain() + 1;
+		awaitPublished(first);
+		cachedCursor = cursor.get(); // pick up anything published meanwhile
+
+		int n = (int) Math.min(limit, cachedCursor - first + 1);
+		for (int i = 0; i < n; i++) {
+			dst[i] = entries[(int) (first + i) & mask];
+		}
+		if (verbose) {
+			System.out.println("Consumed batch of " + n);
+		}
+		consumed.setRelease(first + n - 1);
+		waitStrategy.signalAll();
+		return n;
+	}
+
+	// Timed batch consume. WaitStrategy.waitFor() has no timeout, so this looks at
+	// the cursor directly and parks briefly in between; returns 0 if nothing was
+	// published in time
+	@Override
+	public int poll(int[] dst, int max, long timeout, TimeUnit unit) {
+		if (Math.min(max, dst.length) <= 0) {
+			return 0;
+		}
+		long first = consumed.getPlain() + 1;
+		if (first > cachedCursor) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while ((cachedCursor = cursor.get()) < first) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L) {
+					return 0;
+				}
+				LockSupport.parkNanos(Math.min(remaining, POLL_PARK_NANOS));
+			}
+		}
+		return consume(dst, max); // published already: does not wait
+	}
+
+	public int capacity() {
+		return entries.length;
+	}
+
+	// Producer side: slot 'sequence' is free once the consumer has read the
+	// value that was written there one lap earlier
+	private void awaitFreeSlots(long sequence) {
+		long wrapPoint = sequence - entries.length;
+		if (wrapPoint > cachedConsumed) {
+			cachedConsumed = consumed.get();
+			if (wrapPoint > cachedConsumed) {
+				if (verbose) {
+					System.out.println("Producer waiting as buffer is full...");
+				}
+				cachedConsumed = waitStrategy.waitFor(consumed, wrapPoint);
+			}
+		}
+	}
+
+	// Consumer side: slot 'sequence' is readable once the cursor has reached it
+	private void awaitPublished(long sequence) {
+		if (sequence > cachedCursor) {
+			cachedCursor = cursor.get();
+			if (sequence > cachedCursor) {
+				if (verbose) {
+					System.out.println("Consumer waiting as buffer is empty...");
+				}
+				cachedCursor = waitStrategy.waitFor(cursor, sequence);
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package synchronization.waitnotify;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+//Multi-producer / multi-consumer buffer made of several independent RingBuffer
+//shards, each with its own lock. Every thread is pinned to a "home" shard on
+//first use (round robin), so producers and consumers spread over the shards
+//instead of all queueing on one monitor. An idle consumer first drains its home
+//shard, then steals from the other shards, and only then parks briefly on its
+//home shard before scanning again.
+//Ordering is FIFO per shard only: values from one producer stay in order, but
+//values from different producers may be consumed in any order.
+class ShardedBuffer implements Buffer {
+	// How long an idle consumer parks on its home shard before re-scanning the others
+	private static final long IDLE_PARK_MICROS = 500L;
+
+	private final RingBuffer[] shards;
+	private final boolean verbose;
+
+	private final AtomicInteger nextProducerShard = new AtomicInteger();
+	private final AtomicInteger nextConsumerShard = new AtomicInteger();
+	private final ThreadLocal<Handle> handles = ThreadLocal.withInitial(Handle::new);
+
+	private final LongAdder steals = new LongAdder();
+
+	// Per-thread state: home shards (assigned lazily) and a one-slot scratch array
+	private static final class Handle {
+		int producerShard = -1;
+		int consumerShard = -1;
+		final int[] single = new int[1];
+	}
+
+	public ShardedBuffer(int shardCount, int shardCapacity) {
+		this(shardCount, shardCapacity, true);
+	}
+
+	public ShardedBuffer(int shardCount, int shardCapacity, boolean verbose) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+		}
+		this.shards = new RingBuffer[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new RingBuffer(shardCapacity, false);
+		}
+		this.verbose = verbose;
+	}
+
+	// Method used by producers to add data; blocks only on the home shard
+	@Override
+	public void produce(int value) {
+		int shard = producerShard(handles.get());
+		if (verbose) {
+			System.out.println(Thread.currentThread().getName() + " - Producing: " + value + " into shard " + shard);
+		}
+		shards[shard].produce(value);
+	}
+
+	@Override
+	public void produceAll(int[] values, int off, int len) {
+		int shard = producerShard(handles.get());
+		if (verbose) {
+			System.out.println(Thread.currentThread().getName() + " - Producing batch of " + len + " into shard " + shard);
+		}
+		shards[shard].produceAll(values, off, len);
+	}
+
+	// Method used by consumers to retrieve data
+	@Override
+	public int consume() {
+		int[] single = handles.get().single;
+		consume(single, 1);
+		return single[0];
+	}
+
+	// Drains the home shard first, then steals from the others; parks briefly on
+	// the home shard when every shard is empty
+	@Override
+	public int consume(int[] dst, int max) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		int home = consumerShard(handles.get());
+		while (true) {
+			int n = scan(dst, limit, home);
+			if (n > 0) {
+				return n;
+			}
+			n = shards[home].poll(dst, limit, IDLE_PARK_MICROS, TimeUnit.MICROSECONDS);
+			if (n > 0) {
+				report(n, home, false);
+				return n;
+			}
+		}
+	}
+
+	// Timed variant of consume(int[], int): scans and parks the same way, but
+	// returns 0 once the timeout has passed with every shard still empty
+	@Override
+	public int poll(int[] dst, int max, long timeout, TimeUnit unit) {
+		int limit = Math.min(max, dst.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int home = consumerShard(handles.get());
+		while (true) {
+			int n = scan(dst, limit, home);
+			if (n > 0) {
+				return n;
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0L) {
+				return 0;
+			}
+			long park = Math.min(remaining, TimeUnit.MICROSECONDS.toNanos(IDLE_PARK_MICROS));
+			n = shards[home].poll(dst, limit, park, TimeUnit.NANOSECONDS);
+			if (n > 0) {
+				report(n, home, false);
+				return n;
+			}
+		}
+	}
+
+	// Number of consume calls that were served by a shard other than the caller's home shard
+	public long steals() {
+		return steals.sum();
+	}
+
+	public int shardCount() {
+		return shards.length;
+	}
+
+	// Takes what is available right now from the home shard, else steals from the
+	// others in order; 0 if every shard is empty
+	private int scan(int[] dst, int limit, int home) {
+		for (int i = 0; i < shards.length; i++) {
+			int shard = (home + i) % shards.length;
+			int n = shards[shard].drainTo(dst, limit);
+			if (n > 0) {
+				if (i > 0) {
+					steals.increment();
+				}
+				report(n, shard, i > 0);
+				return n;
+			}
+		}
+		return 0;
+	}
+
+	private int producerShard(Handle handle) {
+		if (handle.producerShard < 0) {
+			handle.producerShard = Math.floorMod(nextProducerShard.getAndIncrement(), shards.length);
+		}
+		return handle.producerShard;
+	}
+
+	private int consumerShard(Handle handle) {
+		if (handle.consumerShard < 0) {
+			handle.consumerShard = Math.floorMod(nextConsumerShard.getAndIncrement(), shards.length);
+		}
+		return handle.consumerShard;
+	}
+
+	private void report(int n, int shard, boolean stolen) {
+		if (verbose) {
+			System.out.println(Thread.currentThread().getName() + " - Consumed " + n + " from shard " + shard
+					+ (stolen ? " (stolen)" : ""));
+		}
+	}
+}
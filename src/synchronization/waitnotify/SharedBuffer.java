@@ -1,47 +1,130 @@
 package synchronization.waitnotify;
 
-//Shared resource class that will be accessed by both producer and consumer
-class SharedBuffer {
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Shared resource class that will be accessed by both producer and consumer.
+//It follows the classic wait()/notify() protocol, but uses a ReentrantLock and
+//Conditions instead of synchronized + Object.wait(): on JDK 21 a virtual thread
+//that blocks in Object.wait() (or inside synchronized) pins its carrier thread,
+//while Condition.await() unmounts it. The mapping is one to one:
+//  synchronized -> lock.lock() / unlock(),  wait() -> await(),  notify() -> signal()
+class SharedBuffer implements Buffer {
 	private int data;
 	private boolean hasData = false;
+	private final boolean verbose;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition(); // producers wait here
+	private final Condition notEmpty = lock.newCondition(); // consumers wait here
+
+	public SharedBuffer() {
+		this(true);
+	}
+
+	// verbose = false turns off the progress messages, e.g. for benchmarks
+	public SharedBuffer(boolean verbose) {
+		this.verbose = verbose;
+	}
 
 	// Method used by producer to add data
-	public synchronized void produce(int value) {
-		// While there is unprocessed data, wait
-		while (hasData) {
-			try {
-				System.out.println("Producer waiting as buffer is full...");
-				wait(); // Releases the lock and waits for notification
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
+	@Override
+	public void produce(int value) {
+		lock.lock();
+		try {
+			// While there is unprocessed data, wait
+			while (hasData) {
+				if (verbose) {
+					System.out.println("Producer waiting as buffer is full...");
+				}
+				notFull.awaitUninterruptibly(); // Releases the lock and waits for a signal
 			}
-		}
 
-		data = value;
-		hasData = true;
-		System.out.println("Produced: " + value);
+			data = value;
+			hasData = true;
+			if (verbose) {
+				System.out.println("Produced: " + value);
+			}
 
-		// Notify waiting consumer that data is available
-		notify(); // Wakes up one waiting thread
+			// Signal waiting consumer that data is available
+			notEmpty.signal(); // Wakes up one waiting consumer
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	// Method used by consumer to retrieve data
-	public synchronized int consume() {
-		// While there is no data to process, wait
-		while (!hasData) {
-			try {
-				System.out.println("Consumer waiting as buffer is empty...");
-				wait(); // Releases the lock and waits for notification
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
+	@Override
+	public int consume() {
+		lock.lock();
+		try {
+			// While there is no data to process, wait
+			while (!hasData) {
+				if (verbose) {
+					System.out.println("Consumer waiting as buffer is empty...");
+				}
+				notEmpty.awaitUninterruptibly(); // Releases the lock and waits for a signal
 			}
+
+			hasData = false;
+			if (verbose) {
+				System.out.println("Consumed: " + data);
+			}
+
+			// Signal waiting producer that buffer is empty
+			notFull.signal(); // Wakes up one waiting producer
+			return data;
+		} finally {
+			lock.unlock();
 		}
+	}
 
-		hasData = false;
-		System.out.println("Consumed: " + data);
+	// Timed consume: waits up to the timeout for the slot to fill, then takes its
+	// single value. Returns 0 if nothing arrived in time.
+	@Override
+	public int poll(int[] dst, int max, long timeout, TimeUnit unit) {
+		if (max <= 0 || dst.length == 0) {
+			return 0;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean interrupted = false;
+		lock.lock();
+		try {
+			while (!hasData) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L) {
+					return 0;
+				}
+				try {
+					notEmpty.awaitNanos(remaining);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			dst[0] = consume(); // Reentrant, and the slot is full: does not wait
+			return 1;
+		} finally {
+			lock.unlock();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
 
-		// Notify waiting producer that buffer is empty
-		notify(); // Wakes up one waiting thread
-		return data;
+	// Batch variant for the producer: the lock is acquired once for the whole
+	// batch instead of once per value. With a single slot the producer still has
+	// to hand over each value, but await() re-acquires the lock directly.
+	@Override
+	public void produceAll(int[] values, int off, int len) {
+		Buffer.checkRange(values, off, len);
+		lock.lock();
+		try {
+			for (int i = off; i < off + len; i++) {
+				produce(values[i]); // Reentrant: we already hold the lock
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 }
@@ -0,0 +1,72 @@
+package synchronization.waitnotify;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ThreadFactory;
+
+//Runs thousands of Producers and Consumers against one buffer, once on platform
+//threads and once on virtual threads, and prints throughput and memory figures.
+//Every Producer/Consumer sleeps briefly after each item to simulate blocking I/O,
+//which is the workload virtual threads are designed for: a sleeping or awaiting
+//virtual thread unmounts from its carrier, so a handful of carriers serve all of
+//them, while every platform thread needs its own OS thread and stack.
+//All buffers used here block with ReentrantLock/Condition, so no carrier is pinned.
+//Platform thread stacks live in native memory, so the OS thread count is the
+//figure to compare; the heap figure covers the Thread objects and virtual stacks.
+class ThreadModeComparison {
+	private static final int ITEMS_PER_THREAD = 20;
+	private static final long DELAY_MILLIS = 10L;
+
+	public static void run(int pairs, String mode) {
+		System.out.println("Running " + pairs + " producers and " + pairs + " consumers, "
+				+ ITEMS_PER_THREAD + " items each, " + DELAY_MILLIS + " ms simulated work per item");
+		if (!mode.equals("virtual")) {
+			// Daemon threads, so a failed start cannot leave the JVM hanging
+			runOnce("platform", Thread.ofPlatform().daemon(true).factory(), pairs);
+		}
+		if (!mode.equals("platform")) {
+			runOnce("virtual", Thread.ofVirtual().factory(), pairs);
+		}
+	}
+
+	private static void runOnce(String name, ThreadFactory factory, int pairs) {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		System.gc();
+		long heapBefore = memory.getHeapMemoryUsage().getUsed();
+		threadBean.resetPeakThreadCount();
+
+		// Quiet ring buffer: printing from thousands of threads would dominate the timing
+		Buffer buffer = new RingBuffer(1024, false);
+		Thread[] threads = new Thread[pairs * 2];
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < pairs; i++) {
+				threads[2 * i] = factory.newThread(new Producer(buffer, 1, ITEMS_PER_THREAD, DELAY_MILLIS));
+				threads[2 * i + 1] = factory.newThread(new Consumer(buffer, 1, ITEMS_PER_THREAD, DELAY_MILLIS));
+				threads[2 * i].start();
+				threads[2 * i + 1].start();
+			}
+		} catch (OutOfMemoryError e) {
+			// Typically "unable to create native thread" for large platform thread counts
+			System.out.println(name + ": could not start all threads: " + e.getMessage());
+			return;
+		}
+		long heapRunning = memory.getHeapMemoryUsage().getUsed();
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		long items = (long) pairs * ITEMS_PER_THREAD;
+		System.out.printf("%-8s: %,d items in %,d ms -> %,.0f items/s, peak OS threads %,d, heap growth while running %,d KB%n",
+				name, items, elapsedNanos / 1_000_000, items * 1e9 / elapsedNanos,
+				threadBean.getPeakThreadCount(), Math.max(0L, heapRunning - heapBefore) / 1024);
+	}
+}
@@ -0,0 +1,141 @@
+package synchronization.waitnotify;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+//How a SequenceRingBuffer side waits for the other side to move its sequence.
+//The strategies trade CPU usage against wake-up latency:
+//  busy-spin < yielding < sleeping < blocking   (latency, lowest first)
+//  blocking < sleeping < yielding < busy-spin   (CPU usage, lowest first)
+interface WaitStrategy {
+
+	// Waits until sequence.get() >= target and returns the value observed
+	long waitFor(Sequence sequence, long target);
+
+	// Called after a sequence has moved, to wake up threads blocked in waitFor()
+	void signalAll();
+
+	// Parses the strategy name used on the ProducerConsumerDemo command line
+	static WaitStrategy of(String name) {
+		switch (name) {
+			case "blocking":
+				return new Blocking();
+			case "sleeping":
+				return new Sleeping();
+			case "yielding":
+				return new Yielding();
+			case "busy-spin":
+				return new BusySpin();
+			default:
+				throw new IllegalArgumentException("Unknown wait strategy: " + name);
+		}
+	}
+
+	// Parks on a Condition: lowest CPU usage, but every publish takes the lock to signal
+	final class Blocking implements WaitStrategy {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition moved = lock.newCondition();
+
+		@Override
+		public long waitFor(Sequence sequence, long target) {
+			long available = sequence.get();
+			if (available >= target) {
+				return available;
+			}
+			lock.lock();
+			try {
+				while ((available = sequence.get()) < target) {
+					moved.awaitUninterruptibly();
+				}
+				return available;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void signalAll() {
+			lock.lock();
+			try {
+				moved.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	// Spins, then yields, then parks for short intervals: a middle ground that
+	// needs no signalling from the other side
+	final class Sleeping implements WaitStrategy {
+		private static final int SPIN_TRIES = 100;
+		private static final int YIELD_TRIES = 100;
+		private static final long PARK_NANOS = 100_000L;
+
+		@Override
+		public long waitFor(Sequence sequence, long target) {
+			int counter = SPIN_TRIES + YIELD_TRIES;
+			long available;
+			while ((available = sequence.get()) < target) {
+				if (counter > YIELD_TRIES) {
+					counter--;
+					Thread.onSpinWait();
+				} else if (counter > 0) {
+					counter--;
+					Thread.yield();
+				} else {
+					LockSupport.parkNanos(PARK_NANOS);
+				}
+			}
+			return available;
+		}
+
+		@Override
+		public void signalAll() {
+			// Waiters wake up on their own
+		}
+	}
+
+	// Spins briefly, then gives the core away with Thread.yield()
+	final class Yielding implements WaitStrategy {
+		private static final int SPIN_TRIES = 100;
+
+		@Override
+		public long waitFor(Sequence sequence, long target) {
+			int counter = SPIN_TRIES;
+			long available;
+			while ((available = sequence.get()) < target) {
+				if (counter > 0) {
+					counter--;
+					Thread.onSpinWait();
+				} else {
+					Thread.yield();
+				}
+			}
+			return available;
+		}
+
+		@Override
+		public void signalAll() {
+			// Waiters wake up on their own
+		}
+	}
+
+	// Burns a core in a tight loop: lowest latency, only sensible when each
+	// thread has a dedicated core
+	final class BusySpin implements WaitStrategy {
+		@Override
+		public long waitFor(Sequence sequence, long target) {
+			long available;
+			while ((available = sequence.get()) < target) {
+				Thread.onSpinWait();
+			}
+			return available;
+		}
+
+		@Override
+		public void signalAll() {
+			// Waiters never sleep
+		}
+	}
+}